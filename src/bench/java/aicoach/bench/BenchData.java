@@ -0,0 +1,183 @@
+package aicoach.bench;
+
+import aicoach.db.Db;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * @file benchdata.java
+ * @brief baze de date generate determinist pentru benchmark-uri: un utilizator mic, mediu sau urias.
+ *
+ * utilizatorul masurat este cel de test (id 1, creat de seeddata); pe langa el exista alti utilizatori cu istoric
+ * obisnuit, ca indexurile sa conteze ca in productie. fiecare marime se genereaza o singura data in
+ * target/bench-data (versiunea din nume se schimba cand se schimba datele) si se copiaza pentru fiecare trial,
+ * deci benchmark-urile nu modifica sablonul si nu platesc generarea la fiecare fork.
+ */
+final class BenchData {
+
+    /** utilizatorul masurat (creat de seeddata). */
+    static final long USER_ID = 1;
+
+    /** schimba numele fisierelor generate cand se schimba continutul lor. */
+    private static final int VERSION = 1;
+
+    /** alti utilizatori si istoricul fiecaruia (chat, progres). */
+    private static final int OTHER_USERS = 200;
+    private static final int OTHER_CHAT = 200;
+    private static final int OTHER_PROGRESS = 90;
+
+    private static final Path DIR = Paths.get("target", "bench-data");
+
+    private static final String[] WORDS = {
+            "antrenament", "genuflexiuni", "proteine", "calorii", "alergare", "somn", "recuperare", "greutate",
+            "impins", "tractiuni", "hidratare", "mese", "progres", "durere", "genunchi", "spate", "cardio",
+            "intindere", "obiectiv", "saptamana", "repetari", "serii", "pauza", "mic dejun", "legume"
+    };
+
+    /** marimea istoricului utilizatorului masurat. */
+    enum Size {
+        small(50, 30, 3),
+        medium(2_000, 365, 20),
+        huge(100_000, 3_650, 200);
+
+        final int chat;
+        final int progress;
+        final int plans;
+
+        Size(int chat, int progress, int plans) {
+            this.chat = chat;
+            this.progress = progress;
+            this.plans = plans;
+        }
+    }
+
+    private BenchData() {}
+
+    /**
+     * deschide o copie proaspata a bazei pentru marimea data (o genereaza daca lipseste) prin {@link Db#init(Path)}.
+     *
+     * @param size small, medium sau huge.
+     * @return fisierul copiei (sters de {@link #close(Path)}).
+     */
+    static Path open(String size) {
+        Size s = Size.valueOf(size);
+        try {
+            Path template = template(s);
+            Path copy = Files.createTempFile(DIR, s.name() + "-", ".db");
+            Files.copy(template, copy, StandardCopyOption.REPLACE_EXISTING);
+            Db.init(copy);
+            return copy;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** inchide baza si sterge copia (impreuna cu fisierele wal/shm). */
+    static void close(Path copy) {
+        Db.close();
+        try {
+            Files.deleteIfExists(copy);
+            Files.deleteIfExists(Paths.get(copy + "-wal"));
+            Files.deleteIfExists(Paths.get(copy + "-shm"));
+        } catch (IOException ignored) {
+            // fisier temporar in target, se sterge la mvn clean
+        }
+    }
+
+    /** text determinist de lungime variabila (intre min si max cuvinte). */
+    static String text(Random rnd, int min, int max) {
+        int n = min + rnd.nextInt(max - min + 1);
+        StringBuilder sb = new StringBuilder(n * 9);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(i % 12 == 0 ? ". " : " ");
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return sb.append('.').toString();
+    }
+
+    private static synchronized Path template(Size s) throws IOException {
+        Files.createDirectories(DIR);
+        Path file = DIR.resolve(s.name() + "-v" + VERSION + ".db");
+        if (Files.exists(file)) return file;
+
+        Path tmp = DIR.resolve(s.name() + "-v" + VERSION + ".tmp");
+        Files.deleteIfExists(tmp);
+        Db.init(tmp);
+        try {
+            Db.write(c -> {
+                Random rnd = new Random(42);
+                LocalDate end = LocalDate.of(2026, 1, 1);
+                try (PreparedStatement user = c.prepareStatement("insert into users(email, password_hash) values(?, 'x')");
+                     PreparedStatement profile = c.prepareStatement(
+                             "insert into user_profiles(user_id, age, height_cm, weight_kg, goal, activity_level, gender) "
+                                     + "values(last_insert_rowid(), 30, 175, 80, 'weight_loss', 'moderate', 'male')")) {
+                    for (int u = 0; u < OTHER_USERS; u++) {
+                        user.setString(1, "bench" + u + "@example.com");
+                        user.executeUpdate();
+                        profile.executeUpdate();
+                    }
+                }
+                insertHistory(c, rnd, USER_ID, s.chat, s.progress, s.plans, end);
+                for (long u = 2; u < 2 + OTHER_USERS; u++) insertHistory(c, rnd, u, OTHER_CHAT, OTHER_PROGRESS, 2, end);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Generare date benchmark esuata: " + e.getMessage(), e);
+        } finally {
+            Db.close();
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    private static void insertHistory(Connection c, Random rnd, long userId, int chat, int progress, int plans,
+                                      LocalDate end) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "insert into chat_history(user_id, role, message, timestamp) values(?, ?, ?, ?)")) {
+            for (int i = 0; i < chat; i++) {
+                boolean user = i % 2 == 0;
+                ps.setLong(1, userId);
+                ps.setString(2, user ? "user" : "assistant");
+                ps.setString(3, user ? text(rnd, 5, 30) : text(rnd, 40, 160));
+                ps.setString(4, end.minusDays((chat - i) / 10).toString() + " 12:00:00");
+                ps.addBatch();
+                if (i % 1000 == 999) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = c.prepareStatement(
+                "insert into progress(user_id, entry_date, weight_kg, calories_consumed, workout_min, notes) values(?, ?, ?, ?, ?, ?)")) {
+            double weight = 95;
+            for (int i = 0; i < progress; i++) {
+                weight += rnd.nextGaussian() * 0.3 - 0.02;
+                ps.setLong(1, userId);
+                ps.setString(2, end.minusDays(progress - i).toString());
+                ps.setDouble(3, Math.round(weight * 10) / 10.0);
+                ps.setInt(4, 1800 + rnd.nextInt(900));
+                ps.setInt(5, rnd.nextInt(4) * 20);
+                ps.setString(6, rnd.nextInt(3) == 0 ? text(rnd, 2, 8) : "");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = c.prepareStatement("insert into plans(user_id, plan_type, content) values(?, ?, ?)")) {
+            for (int i = 0; i < plans; i++) {
+                ps.setLong(1, userId);
+                ps.setString(2, i % 2 == 0 ? "WORKOUT" : "NUTRITION");
+                ps.setString(3, text(rnd, 300, 700));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package aicoach.bench;
+
+import aicoach.ai.AiMessage;
+import aicoach.dao.ChatDao;
+import aicoach.model.ChatMessage;
+import aicoach.service.ChatService;
+import aicoach.service.ContextBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file chatcontextbench.java
+ * @brief masoara construirea contextului trimis modelului la fiecare mesaj de chat.
+ *
+ * fromdb este drumul complet din chatservice.prepare fara inserarea mesajului (profil, rezumat, istoric recent,
+ * progres, incadrare in buget); build este doar incadrarea in buget, pe istoricul deja citit.
+ * rulare: mvn -Pbench compile exec:exec "-Dbench.args=ChatContextBench"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatContextBench {
+
+    private static final String MESSAGE = "Ce ar trebui sa mananc dupa antrenamentul de picioare de azi?";
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private final ChatService chat = new ChatService();
+    private final ContextBuilder builder = new ContextBuilder(ContextBuilder.DEFAULT_BUDGET);
+    private Path db;
+    private List<ChatMessage> recent;
+
+    @Setup
+    public void setup() {
+        db = BenchData.open(size);
+        recent = new ChatDao().latest(BenchData.USER_ID, 100);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchData.close(db);
+    }
+
+    @Benchmark
+    public List<AiMessage> fromDb() {
+        return chat.context(BenchData.USER_ID, MESSAGE);
+    }
+
+    @Benchmark
+    public List<AiMessage> build() {
+        return builder.build("Esti un antrenor de fitness.", "Profil: 30 ani, 175 cm, 80 kg.", null, recent, MESSAGE);
+    }
+}
@@ -0,0 +1,51 @@
+package aicoach.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @file cliargs.java
+ * @brief optiuni de linie de comanda de forma --nume valoare pentru uneltele de test (stub, load test).
+ */
+final class CliArgs {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    CliArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (!a.startsWith("--")) throw new IllegalArgumentException("Optiune invalida: " + a);
+            String name = a.substring(2);
+            int eq = name.indexOf('=');
+            if (eq >= 0) values.put(name.substring(0, eq), name.substring(eq + 1));
+            else if (i + 1 < args.length && !args[i + 1].startsWith("--")) values.put(name, args[++i]);
+            else values.put(name, "true");
+        }
+    }
+
+    String get(String name, String def) {
+        return values.getOrDefault(name, def);
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    int getInt(String name, int def) {
+        String v = values.get(name);
+        try {
+            return v == null ? def : Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " trebuie sa fie numar intreg: " + v);
+        }
+    }
+
+    double getDouble(String name, double def) {
+        String v = values.get(name);
+        try {
+            return v == null ? def : Double.parseDouble(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " trebuie sa fie numar: " + v);
+        }
+    }
+}
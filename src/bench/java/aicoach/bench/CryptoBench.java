@@ -0,0 +1,75 @@
+package aicoach.bench;
+
+import aicoach.util.Crypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file cryptobench.java
+ * @brief compara crypto.sha256 cu implementarea initiala (getinstance + string.format per octet).
+ *
+ * lungimea 8 corespunde unei parole, 2048 unei chei din plancache (prompt-uri intregi).
+ * rulare (cu -prof gc pentru alocari): mvn -Pbench compile exec:exec "-Dbench.args=CryptoBench -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBench {
+
+    @Param({"8", "2048"})
+    public int length;
+
+    private String text;
+    private byte[] bytes;
+    private ByteBuffer direct;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + i % 26));
+        text = sb.toString();
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+        direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+    }
+
+    @Benchmark
+    public String legacy() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] hash = md.digest(text.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : hash) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String string() {
+        return Crypto.sha256(text);
+    }
+
+    @Benchmark
+    public String byteArray() {
+        return Crypto.sha256(bytes);
+    }
+
+    @Benchmark
+    public String byteBuffer() {
+        return Crypto.sha256(direct.clear());
+    }
+}
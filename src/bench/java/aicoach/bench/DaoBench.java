@@ -0,0 +1,76 @@
+package aicoach.bench;
+
+import aicoach.dao.ChatDao;
+import aicoach.dao.ProgressDao;
+import aicoach.model.ChatMessage;
+import aicoach.model.ProgressEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file daobench.java
+ * @brief masoara citirile dao folosite la deschiderea chatului si a progresului pe utilizatori mici, medii si uriasi.
+ *
+ * chatlist citeste primele mesaje (ordine crescatoare), chatlatest ultimele (fereastra folosita de chat);
+ * progresslist este istoricul complet, progresspage o pagina din tabelul de progres.
+ * rulare: mvn -Pbench compile exec:exec "-Dbench.args=DaoBench -p size=huge"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBench {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private final ChatDao chatDao = new ChatDao();
+    private final ProgressDao progressDao = new ProgressDao();
+    private Path db;
+
+    @Setup
+    public void setup() {
+        db = BenchData.open(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchData.close(db);
+    }
+
+    @Benchmark
+    public List<ChatMessage> chatList() {
+        return chatDao.list(BenchData.USER_ID, 200);
+    }
+
+    @Benchmark
+    public List<ChatMessage> chatLatest() {
+        return chatDao.latest(BenchData.USER_ID, 100);
+    }
+
+    @Benchmark
+    public List<ProgressEntry> progressList() {
+        return progressDao.list(BenchData.USER_ID);
+    }
+
+    @Benchmark
+    public List<ProgressEntry> progressPage() {
+        return progressDao.page(BenchData.USER_ID, 0, 200);
+    }
+}
@@ -0,0 +1,216 @@
+package aicoach.bench;
+
+import aicoach.ai.OpenRouterClient;
+import aicoach.dao.ChatDao;
+import aicoach.dao.ChatSummaryDao;
+import aicoach.dao.PlanDao;
+import aicoach.dao.ProfileDao;
+import aicoach.dao.ProgressDao;
+import aicoach.db.Db;
+import aicoach.metrics.LatencyHistogram;
+import aicoach.metrics.Metrics;
+import aicoach.model.UserProfile;
+import aicoach.service.Async;
+import aicoach.service.ChatService;
+import aicoach.service.CoachService;
+import aicoach.service.ContextBuilder;
+import aicoach.service.PlanCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file loadtest.java
+ * @brief generator de incarcare: multi utilizatori simulati trimit conversatii sintetice prin acelasi drum ca interfata.
+ *
+ * fiecare utilizator simulat are firul lui si ruleaza --turns ture separate de un timp de gandire exponential
+ * (media --think-ms). o tura de chat repeta drumul din chatpanel: chatservice.prepare pe executorul de i/o, raspunsul
+ * in streaming, apoi saveReply (care poate porni si rezumarea in fundal); cu probabilitatea --plan-ratio tura este
+ * in schimb o generare de plan prin coachservice (cu plancache). conversatiile sunt generate din --seed, deci doua
+ * rulari cu aceleasi optiuni trimit aceleasi mesaje in aceeasi ordine per utilizator.
+ *
+ * baza de date este o copie a datelor de benchmark (--size small|medium|huge). fara --url porneste in proces un
+ * stubllmserver (optiunile lui --ttft-ms, --sigma, --tokens, --token-ms, --error-rate... se aplica direct).
+ * la final afiseaza debitul, latentele end-to-end si pana la primul token, erorile si metricile dao/ai;
+ * cu --out scrie rezumatul si ca json.
+ *
+ * rulare: mvn -Pbench compile exec:exec@load "-Dload.args=--users 100 --turns 20 --ttft-ms 400 --error-rate 0.01"
+ */
+public final class LoadTest {
+
+    private static final String[] MESSAGES = {
+            "Ce sa mananc inainte de antrenament?",
+            "Cate proteine ar trebui sa consum pe zi?",
+            "Am febra musculara dupa genuflexiuni, e normal?",
+            "Cum pot slabi fara sa pierd masa musculara?",
+            "Pot face cardio in aceeasi zi cu fortele?",
+            "Ce alternativa am la tractiuni daca nu reusesc niciuna?",
+            "Cat ar trebui sa dorm ca sa recuperez bine?",
+            "Merita sa iau creatina?",
+            "Cum imi impart antrenamentele pe 4 zile?",
+            "Am stagnat la greutate de doua saptamani, ce schimb?",
+            "Ce gustare sanatoasa am seara?",
+            "Ma doare genunchiul la fandari, ce fac?"
+    };
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        CliArgs a = new CliArgs(args);
+        int users = a.getInt("users", 50);
+        int turns = a.getInt("turns", 10);
+        double thinkMs = a.getDouble("think-ms", 500);
+        double planRatio = a.getDouble("plan-ratio", 0.1);
+        long seed = a.getInt("seed", 42);
+        String size = a.get("size", "small");
+
+        StubLlmServer stub = a.has("url") ? null : StubLlmServer.start(StubLlmServer.Config.parse(a, 0));
+        String url = stub != null ? stub.url() : a.get("url", OpenRouterClient.DEFAULT_URL);
+        String key = a.get("key", stub != null ? "stub" : System.getenv("OPENROUTER_API_KEY"));
+
+        Path db = BenchData.open(size);
+        prepareUsers(users);
+
+        OpenRouterClient client = new OpenRouterClient(URI.create(url), key);
+        ChatService chat = new ChatService(() -> client, new ChatDao(), new ProfileDao(), new ProgressDao(),
+                new ChatSummaryDao(), new ContextBuilder(ContextBuilder.defaultBudget()));
+        CoachService coach = new CoachService(client, PlanCache.shared());
+        ProfileDao profiles = new ProfileDao();
+        PlanDao plans = new PlanDao();
+
+        LatencyHistogram chatLatency = new LatencyHistogram();
+        LatencyHistogram firstToken = new LatencyHistogram();
+        LatencyHistogram planLatency = new LatencyHistogram();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        Metrics.reset();
+
+        System.out.printf(Locale.ROOT, "load: %d utilizatori x %d ture, think %.0f ms, plan %.0f%%, date %s, llm %s%n",
+                users, turns, thinkMs, planRatio * 100, size, url);
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        long start = System.nanoTime();
+        for (int u = 0; u < users; u++) {
+            long userId = BenchData.USER_ID + u;
+            SplittableRandom rnd = new SplittableRandom(seed * 1_000_003 + userId);
+            pool.execute(() -> {
+                sleep(rnd.nextDouble() * thinkMs);
+                for (int t = 0; t < turns; t++) {
+                    long t0 = System.nanoTime();
+                    try {
+                        if (rnd.nextDouble() < planRatio) {
+                            UserProfile p = profiles.get(userId);
+                            String content = coach.generateWorkoutPlanAsync(p, token -> {}).join();
+                            plans.insert(userId, "WORKOUT", content);
+                            planLatency.record(System.nanoTime() - t0);
+                        } else {
+                            String msg = MESSAGES[rnd.nextInt(MESSAGES.length)] + " (tura " + (t + 1) + ")";
+                            AtomicLong first = new AtomicLong();
+                            CompletableFuture<Void> f = Async.db(() -> chat.prepare(userId, msg))
+                                    .thenCompose(m -> chat.reply(m, token -> first.compareAndSet(0, System.nanoTime())))
+                                    .thenAcceptAsync(reply -> chat.saveReply(userId, reply), Async.DB);
+                            f.join();
+                            chatLatency.record(System.nanoTime() - t0);
+                            if (first.get() != 0) firstToken.record(first.get() - t0);
+                        }
+                    } catch (RuntimeException e) {
+                        Throwable cause = Async.unwrap(e);
+                        errors.computeIfAbsent(cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+                    }
+                    sleep(-Math.log(1 - rnd.nextDouble()) * thinkMs);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.DAYS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram.Snapshot c = chatLatency.snapshot();
+        LatencyHistogram.Snapshot ft = firstToken.snapshot();
+        LatencyHistogram.Snapshot pl = planLatency.snapshot();
+        long failed = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        System.out.printf(Locale.ROOT, "durata %.1f s, %d ture reusite (%.1f/s), %d esuate %s%n",
+                seconds, c.count() + pl.count(), (c.count() + pl.count()) / seconds, failed, errors);
+        print("chat end-to-end", c);
+        print("chat primul token", ft);
+        print("plan", pl);
+        if (stub != null) System.out.println("stub: " + stub.stats());
+        System.out.println();
+        System.out.print(Metrics.report(false));
+
+        if (a.has("out")) {
+            ObjectMapper om = new ObjectMapper();
+            ObjectNode json = om.createObjectNode()
+                    .put("users", users).put("turns", turns).put("thinkMs", thinkMs).put("planRatio", planRatio)
+                    .put("size", size).put("seed", seed).put("seconds", seconds)
+                    .put("throughput", (c.count() + pl.count()) / seconds).put("failed", failed);
+            json.set("chat", om.valueToTree(c));
+            json.set("firstToken", om.valueToTree(ft));
+            json.set("plan", om.valueToTree(pl));
+            json.set("errors", om.valueToTree(errors.entrySet().stream()
+                    .collect(java.util.stream.Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum()))));
+            om.writerWithDefaultPrettyPrinter().writeValue(Paths.get(a.get("out", "")).toFile(), json);
+        }
+
+        BenchData.close(db);
+        if (stub != null) stub.stop();
+        System.exit(0);
+    }
+
+    /**
+     * se asigura ca exista utilizatorii 1..n cu profil; profilurile sunt diferite intre ei, ca planurile generate
+     * sa nu vina toate din acelasi rand din cache.
+     */
+    private static void prepareUsers(int n) throws SQLException {
+        Db.write(c -> {
+            try (PreparedStatement user = c.prepareStatement(
+                    "insert or ignore into users(id, email, password_hash) values(?, ?, 'x')");
+                 PreparedStatement profile = c.prepareStatement(
+                         "insert into user_profiles(user_id, age, height_cm, weight_kg, goal, activity_level, gender) "
+                                 + "values(?, ?, ?, ?, ?, 'moderate', ?) on conflict(user_id) do update set "
+                                 + "age = excluded.age, height_cm = excluded.height_cm, weight_kg = excluded.weight_kg, "
+                                 + "goal = excluded.goal, gender = excluded.gender")) {
+                for (long id = BenchData.USER_ID; id < BenchData.USER_ID + n; id++) {
+                    user.setLong(1, id);
+                    user.setString(2, "load" + id + "@example.com");
+                    user.executeUpdate();
+                    profile.setLong(1, id);
+                    profile.setInt(2, 18 + (int) (id % 50));
+                    profile.setInt(3, 155 + (int) (id % 40));
+                    profile.setDouble(4, 50 + id % 70);
+                    profile.setString(5, id % 3 == 0 ? "muscle_gain" : id % 3 == 1 ? "weight_loss" : "maintenance");
+                    profile.setString(6, id % 2 == 0 ? "female" : "male");
+                    profile.executeUpdate();
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void print(String name, LatencyHistogram.Snapshot s) {
+        if (s.count() == 0) return;
+        System.out.printf(Locale.ROOT, "%-18s n=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f ms%n",
+                name, s.count(), s.mean() / 1e6, s.p50() / 1e6, s.p90() / 1e6, s.p99() / 1e6, s.p999() / 1e6, s.max() / 1e6);
+    }
+
+    private static void sleep(double ms) {
+        try {
+            Thread.sleep((long) ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package aicoach.bench;
+
+import aicoach.ai.AiMessage;
+import aicoach.ai.OpenRouterClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file openrouterjsonbench.java
+ * @brief masoara json-ul unui apel chat: serializarea cererii si extragerea textului din raspuns.
+ *
+ * messages este numarul de mesaje din conversatie (4 = plan, 40 = chat cu context plin).
+ * rulare (cu -prof gc pentru alocari): mvn -Pbench compile exec:exec "-Dbench.args=OpenRouterJsonBench -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenRouterJsonBench {
+
+    @Param({"4", "40"})
+    public int messages;
+
+    private List<AiMessage> conversation;
+    private String response;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        conversation = new ArrayList<>(messages);
+        conversation.add(AiMessage.system(BenchData.text(rnd, 150, 150)));
+        for (int i = 1; i < messages; i++) {
+            conversation.add(i % 2 == 1 ? AiMessage.user(BenchData.text(rnd, 5, 30))
+                    : AiMessage.assistant(BenchData.text(rnd, 40, 160)));
+        }
+        String content = BenchData.text(rnd, 400, 400).replace(". ", ".\\n- ");
+        response = "{\"id\":\"gen-1\",\"object\":\"chat.completion\",\"created\":1767225600,\"model\":\"openai/gpt-4o-mini\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},"
+                + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":1800,\"completion_tokens\":600,\"total_tokens\":2400}}";
+    }
+
+    @Benchmark
+    public byte[] request() throws Exception {
+        return OpenRouterClient.requestBody("openai/gpt-4o-mini", conversation, 0.4, 600, true);
+    }
+
+    @Benchmark
+    public String response() throws Exception {
+        return OpenRouterClient.responseContent(response);
+    }
+}
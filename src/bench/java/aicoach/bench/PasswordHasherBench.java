@@ -0,0 +1,51 @@
+package aicoach.bench;
+
+import aicoach.service.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file passwordhasherbench.java
+ * @brief masoara costul unei verificari pbkdf2 pentru mai multe valori ale numarului de iteratii.
+ *
+ * se alege cea mai mare valoare de iteratii care ramane sub latenta tinta a unei autentificari pe
+ * masina tinta (ex. ~250ms) si se seteaza in aicoach_pbkdf2_iterations; hash-urile existente se
+ * refac automat la urmatoarea autentificare. rulare:
+ * mvn -Pbench compile exec:exec -Dbench.args="PasswordHasherBench"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHasherBench {
+
+    @Param({"100000", "210000", "310000", "600000"})
+    public int iterations;
+
+    private PasswordHasher hasher;
+    private String stored;
+
+    @Setup
+    public void setup() {
+        hasher = new PasswordHasher(iterations);
+        stored = hasher.hash("parola-de-test");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify("parola-de-test", stored);
+    }
+}
@@ -0,0 +1,252 @@
+package aicoach.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file stubllmserver.java
+ * @brief server local care imita api-ul openrouter chat completions, pentru teste de performanta fara retea.
+ *
+ * raspunde la post .../chat/completions cu text generat (fara model): timpul pana la primul token urmeaza o
+ * distributie lognormala (mediana --ttft-ms, dispersie --sigma, deci are coada lunga ca un furnizor real),
+ * apoi --tokens fragmente (cel mult max_tokens din cerere) la --token-ms intre ele. suporta "stream": true
+ * (server-sent events, cu usage in ultimul eveniment) si injecteaza erori: --error-rate raspunsuri 503,
+ * --rate-limit-rate raspunsuri 429 cu retry-after, --stream-error-rate o eroare in mijlocul stream-ului.
+ *
+ * pornire: mvn -Pbench compile exec:exec@stub "-Dstub.args=--port 8089 --ttft-ms 400 --error-rate 0.02"
+ * apoi aplicatia cu OPENROUTER_URL=http://localhost:8089/api/v1/chat/completions si orice OPENROUTER_API_KEY.
+ */
+public final class StubLlmServer {
+
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    private static final String[] WORDS = {
+            "Pentru", "obiectivul", "tau", "recomand", "3", "antrenamente", "pe", "saptamana", "cu", "accent", "pe",
+            "exercitii", "compuse,", "proteine", "1.6", "g/kg", "si", "somn", "suficient.", "Creste", "treptat",
+            "greutatea", "si", "noteaza", "progresul", "in", "aplicatie."
+    };
+
+    /** parametrii de latenta si de erori ai serverului. */
+    record Config(int port, double ttftMs, double sigma, int tokens, double tokenMs,
+                  double errorRate, double rateLimitRate, double streamErrorRate, long seed) {
+
+        static Config parse(CliArgs a, int defaultPort) {
+            return new Config(a.getInt("port", defaultPort), a.getDouble("ttft-ms", 300), a.getDouble("sigma", 0.5),
+                    a.getInt("tokens", 120), a.getDouble("token-ms", 10), a.getDouble("error-rate", 0),
+                    a.getDouble("rate-limit-rate", 0), a.getDouble("stream-error-rate", 0), a.getInt("seed", 42));
+        }
+    }
+
+    private final Config config;
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final AtomicLong seeds;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injected = new AtomicLong();
+
+    private StubLlmServer(Config config) throws IOException {
+        this.config = config;
+        this.seeds = new AtomicLong(config.seed());
+        this.http = HttpServer.create(new InetSocketAddress("127.0.0.1", config.port()), 1024);
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stub-llm-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        http.setExecutor(executor);
+        http.createContext("/", this::handle);
+    }
+
+    /**
+     * porneste serverul (port 0 = port liber ales de sistem).
+     *
+     * @param config latentele si ratele de eroare.
+     * @return serverul pornit.
+     * @throws ioexception daca portul nu poate fi deschis.
+     */
+    static StubLlmServer start(Config config) throws IOException {
+        StubLlmServer s = new StubLlmServer(config);
+        s.http.start();
+        return s;
+    }
+
+    /** @return url-ul chat completions al serverului (de pus in openrouter_url). */
+    String url() {
+        return "http://127.0.0.1:" + http.getAddress().getPort() + "/api/v1/chat/completions";
+    }
+
+    /** @return cererile primite si cate au primit o eroare injectata. */
+    String stats() {
+        return "cereri=" + requests.get() + " erori_injectate=" + injected.get();
+    }
+
+    void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(new CliArgs(args), 8089);
+        StubLlmServer s = start(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println("stub oprit: " + s.stats())));
+        System.out.println("stub llm pe " + s.url() + " " + config);
+        Thread.currentThread().join();
+    }
+
+    private void handle(HttpExchange ex) {
+        try {
+            if (!ex.getRequestMethod().equals("POST") || !ex.getRequestURI().getPath().endsWith("/chat/completions")) {
+                error(ex, 404, "ruta inexistenta");
+                return;
+            }
+            if (ex.getRequestHeaders().getFirst("Authorization") == null) {
+                error(ex, 401, "lipseste cheia api");
+                return;
+            }
+            JsonNode req;
+            try (InputStream in = ex.getRequestBody()) {
+                req = OM.readTree(in);
+            }
+            requests.incrementAndGet();
+            SplittableRandom rnd = new SplittableRandom(seeds.getAndIncrement());
+
+            double r = rnd.nextDouble();
+            if (r < config.errorRate()) {
+                injected.incrementAndGet();
+                sleep(lognormal(rnd, config.ttftMs() / 2));
+                error(ex, 503, "stub: eroare injectata");
+                return;
+            }
+            if (r < config.errorRate() + config.rateLimitRate()) {
+                injected.incrementAndGet();
+                ex.getResponseHeaders().set("Retry-After", "1");
+                error(ex, 429, "stub: limita de cereri");
+                return;
+            }
+
+            int promptChars = 0;
+            for (JsonNode m : req.path("messages")) promptChars += m.path("content").asText("").length();
+            int maxTokens = req.path("max_tokens").asInt(config.tokens());
+            int tokens = Math.max(1, Math.min(maxTokens, (int) (config.tokens() * (0.7 + 0.6 * rnd.nextDouble()))));
+            String model = req.path("model").asText("stub");
+
+            sleep(lognormal(rnd, config.ttftMs()));
+            if (req.path("stream").asBoolean(false)) {
+                stream(ex, rnd, model, tokens, promptChars / 4);
+            } else {
+                sleep(tokens * config.tokenMs());
+                ObjectNode resp = base(model, "chat.completion");
+                resp.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop")
+                        .putObject("message").put("role", "assistant").put("content", text(rnd, tokens));
+                usage(resp, promptChars / 4, tokens);
+                byte[] body = OM.writeValueAsBytes(resp);
+                ex.getResponseHeaders().set("Content-Type", "application/json");
+                ex.sendResponseHeaders(200, body.length);
+                try (OutputStream os = ex.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        } catch (Exception e) {
+            // clientul a inchis conexiunea (ex. generare anulata)
+        } finally {
+            ex.close();
+        }
+    }
+
+    /** trimite raspunsul ca server-sent events: un fragment per token, apoi usage si [done]. */
+    private void stream(HttpExchange ex, SplittableRandom rnd, String model, int tokens, int promptTokens)
+            throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "text/event-stream");
+        ex.sendResponseHeaders(200, 0);
+        int failAt = rnd.nextDouble() < config.streamErrorRate() ? rnd.nextInt(tokens) : -1;
+        try (OutputStream os = ex.getResponseBody()) {
+            for (int i = 0; i < tokens; i++) {
+                if (i == failAt) {
+                    injected.incrementAndGet();
+                    ObjectNode err = OM.createObjectNode();
+                    err.putObject("error").put("code", 502).put("message", "stub: eroare in stream");
+                    event(os, err);
+                    return;
+                }
+                if (i > 0) sleep(config.tokenMs());
+                ObjectNode chunk = base(model, "chat.completion.chunk");
+                chunk.putArray("choices").addObject().put("index", 0)
+                        .putObject("delta").put("content", (i == 0 ? "" : " ") + WORDS[rnd.nextInt(WORDS.length)]);
+                event(os, chunk);
+            }
+            ObjectNode last = base(model, "chat.completion.chunk");
+            last.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop").putObject("delta");
+            usage(last, promptTokens, tokens);
+            event(os, last);
+            os.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void event(OutputStream os, JsonNode json) throws IOException {
+        os.write(("data: " + OM.writeValueAsString(json) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    private static ObjectNode base(String model, String object) {
+        return OM.createObjectNode().put("id", "gen-stub").put("object", object)
+                .put("created", System.currentTimeMillis() / 1000).put("model", model);
+    }
+
+    private static void usage(ObjectNode resp, int promptTokens, int completionTokens) {
+        resp.putObject("usage").put("prompt_tokens", promptTokens).put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private static void error(HttpExchange ex, int status, String message) throws IOException {
+        ObjectNode err = OM.createObjectNode();
+        err.putObject("error").put("code", status).put("message", message);
+        byte[] body = OM.writeValueAsBytes(err);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static String text(SplittableRandom rnd, int tokens) {
+        StringBuilder sb = new StringBuilder(tokens * 8);
+        for (int i = 0; i < tokens; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /** valoare lognormala cu mediana data (ms) si dispersia --sigma. */
+    private double lognormal(SplittableRandom rnd, double medianMs) {
+        if (medianMs <= 0) return 0;
+        double u1 = 1 - rnd.nextDouble();
+        double u2 = rnd.nextDouble();
+        double z = Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+        return medianMs * Math.exp(config.sigma() * z);
+    }
+
+    private static void sleep(double ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep((long) ms, (int) ((ms % 1) * 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,19 +1,83 @@
 package aicoach;
 
 import aicoach.db.Db;
+import aicoach.metrics.Metrics;
+import aicoach.metrics.Startup;
+import aicoach.server.ApiServer;
+import aicoach.service.Async;
 import aicoach.ui.AppFrame;
 import aicoach.util.Dialogs;
 
 import javax.swing.*;
+import java.awt.GraphicsEnvironment;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 public final class App {
-    public static void main(String[] args) {
-        
-        Db.init();
+    /**
+     * porneste interfata grafica (sau serverul cu --server). cu --startup-time afiseaza timpii de pornire si iese
+     * imediat ce fereastra si baza de date sunt gata (pentru comparatii, ex. cu si fara arhiva appcds).
+     */
+    public static void main(String[] args) throws Exception {
+        Startup.mark("main");
+        Metrics.start();
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
+        boolean measure = Arrays.asList(args).contains("--startup-time");
+
+        // migrarile ruleaza in paralel cu construirea ferestrei; autentificarea asteapta baza daca e nevoie
+        CompletableFuture<Void> db = Db.initAsync().thenRun(() -> Startup.mark("db"));
+        CompletableFuture<Void> shown = new CompletableFuture<>();
 
-        SwingUtilities.invokeLater(() -> {
+        // fara ecran (ex. rularea de antrenament appcds pe un server de build) se masoara doar baza de date
+        if (measure && GraphicsEnvironment.isHeadless()) shown.complete(null);
+        else SwingUtilities.invokeLater(() -> {
             AppFrame frame = new AppFrame();
             frame.setVisible(true);
+            SwingUtilities.invokeLater(() -> {
+                Startup.mark("frame");
+                shown.complete(null);
+            });
+            db.whenComplete((v, ex) -> {
+                if (ex == null) return;
+                SwingUtilities.invokeLater(() -> {
+                    Dialogs.error(frame, Async.unwrap(ex).getMessage());
+                    System.exit(1);
+                });
+            });
+        });
+
+        CompletableFuture.allOf(db, shown).whenComplete((v, ex) -> {
+            if (ex != null) {
+                // in interfata eroarea este afisata in fereastra
+                if (measure) {
+                    System.err.println("Pornire esuata: " + Async.unwrap(ex).getMessage());
+                    System.exit(1);
+                }
+                return;
+            }
+            Startup.mark("ready");
+            if (measure) {
+                System.out.println("pornire: " + Startup.report());
+                System.exit(0);
+            }
+            Startup.log();
         });
     }
+
+    /**
+     * mod server (fara interfata grafica): aicoach.App --server [port]. portul implicit vine din
+     * aicoach_server_port sau apiserver.default_port.
+     */
+    private static void runServer(String[] args) throws Exception {
+        String env = System.getenv("AICOACH_SERVER_PORT");
+        int port = args.length > 1 ? Integer.parseInt(args[1])
+                : env != null && !env.isBlank() ? Integer.parseInt(env.trim()) : ApiServer.DEFAULT_PORT;
+        Db.init();
+        ApiServer server = ApiServer.start(port);
+        System.out.println("AI Fitness Coach API pe portul " + server.port() + " (fire: " + server.executorKind() + ")");
+        Thread.currentThread().join();
+    }
 }
@@ -0,0 +1,59 @@
+package aicoach.ai;
+
+import java.time.Duration;
+
+/**
+ * @file aicallexception.java
+ * @brief eroare a unui apel catre openrouter, cu informatiile necesare deciziei de reincercare.
+ *
+ * status este codul http (sau -1 pentru erori de retea / timeout), retryafter este valoarea header-ului
+ * retry-after daca serverul a trimis-o, iar retryable spune daca aceeasi cerere poate reusi la o noua incercare.
+ */
+public final class AiCallException extends RuntimeException {
+
+    private final int status;
+    private final Duration retryAfter;
+    private final boolean retryable;
+
+    /**
+     * @param message mesajul erorii.
+     * @param status codul http sau -1 daca raspunsul nu a ajuns.
+     * @param retryAfter intarzierea ceruta de server (poate fi null).
+     * @param retryable true daca cererea poate fi reincercata.
+     * @param cause cauza originala (poate fi null).
+     */
+    public AiCallException(String message, int status, Duration retryAfter, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+        this.retryAfter = retryAfter;
+        this.retryable = retryable;
+    }
+
+    /**
+     * eroare pentru un raspuns http cu status diferit de 2xx; 408, 429 si 5xx sunt considerate temporare.
+     *
+     * @param status codul http.
+     * @param body corpul raspunsului (inclus in mesaj).
+     * @param retryAfter intarzierea ceruta de server (poate fi null).
+     * @return exceptia construita.
+     */
+    static AiCallException forStatus(int status, String body, Duration retryAfter) {
+        boolean retryable = status == 408 || status == 429 || status / 100 == 5;
+        return new AiCallException("Eroare OpenRouter " + status + ": " + body, status, retryAfter, retryable, null);
+    }
+
+    /** @return codul http al raspunsului sau -1 daca nu a existat raspuns. */
+    public int status() {
+        return status;
+    }
+
+    /** @return intarzierea ceruta de server prin retry-after sau null. */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    /** @return true daca cererea poate fi reincercata. */
+    public boolean retryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,34 @@
+package aicoach.ai;
+
+/**
+ * @file aimessage.java
+ * @brief un mesaj din conversatia trimisa modelului (rol + continut), in formatul chat completions.
+ *
+ * rolurile sunt cele native ale api-ului: system, user si assistant.
+ */
+public record AiMessage(String role, String content) {
+
+    /**
+     * @param content instructiunile pentru model.
+     * @return mesaj cu rolul system.
+     */
+    public static AiMessage system(String content) {
+        return new AiMessage("system", content);
+    }
+
+    /**
+     * @param content textul utilizatorului.
+     * @return mesaj cu rolul user.
+     */
+    public static AiMessage user(String content) {
+        return new AiMessage("user", content);
+    }
+
+    /**
+     * @param content raspunsul anterior al modelului.
+     * @return mesaj cu rolul assistant.
+     */
+    public static AiMessage assistant(String content) {
+        return new AiMessage("assistant", content);
+    }
+}
@@ -0,0 +1,18 @@
+package aicoach.ai;
+
+/**
+ * @file ainotconfiguredexception.java
+ * @brief clientul ai nu poate fi creat pentru ca lipseste configurarea (ex. variabila openrouter_api_key).
+ *
+ * extinde illegalstateexception ca apelantii existenti sa o trateze ca pana acum; serverul api o transforma
+ * in 503 (serviciul ai nu este disponibil), nu in 409 ca pe o stare invalida a datelor utilizatorului.
+ */
+public final class AiNotConfiguredException extends IllegalStateException {
+
+    /**
+     * @param message ce configurare lipseste.
+     */
+    public AiNotConfiguredException(String message) {
+        super(message);
+    }
+}
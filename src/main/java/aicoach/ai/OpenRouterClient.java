@@ -1,45 +1,166 @@
 package aicoach.ai;
 
+import aicoach.metrics.Metrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * @file openrouterclient.java
  * @brief client http pentru apelarea openrouter chat completions
  *
- * construieste un request json cu mesaje (system + user) trimite cererea cu api key din env
- * si returneaza textul raspunsului
+ * construieste un request json cu mesaje (system + user sau o conversatie intreaga) trimite cererea cu api key din env
+ * si returneaza textul raspunsului. poate primi raspunsul si in streaming (server-sent events),
+ * token cu token, pentru afisare progresiva.
+ *
+ * clientul este gandit sa fie partajat (vezi shared()): un singur httpclient http/2 tine conexiunea
+ * tls deschisa intre mesaje, iar mapper-ul json este comun si incalzit o singura data.
  */
-public final class OpenRouterClient {u
+public final class OpenRouterClient {
+
+    /** endpoint-ul openrouter pentru chat completions (implicit; suprascris de openrouter_url). */
+    public static final String DEFAULT_URL = "https://openrouter.ai/api/v1/chat/completions";
+
+    /** mapper json (jackson) comun pentru construire json; thread-safe dupa configurare. */
+    private static final ObjectMapper OM = new ObjectMapper();
+
+    /** writer/reader pre-construite: evita cautarea serializatorilor la fiecare cerere. */
+    private static final ObjectWriter WRITER = OM.writer();
+    private static final ObjectReader READER = OM.reader();
+
+    static {
+        try {
+            ObjectNode warm = OM.createObjectNode().put("model", "warmup").put("temperature", 0.1);
+            warm.putArray("messages").addObject().put("role", "user").put("content", "x");
+            READER.readTree(WRITER.writeValueAsBytes(warm)).at("/messages/0/content").asText("");
+        } catch (Exception ignored) {
+        }
+    }
+
+    /** clientul partajat de toata aplicatia (creat la primul apel shared()). */
+    private static volatile OpenRouterClient shared;
+
+    /** endpoint-ul folosit de acest client (openrouter sau un server local de test). */
+    private final URI endpoint;
+
+    /** client http folosit pentru trimiterea cererilor (http/2, conexiuni pastrate intre cereri). */
+    private final HttpClient http;
 
-    /** endpoint-ul openrouter pentru chat completions. */
-    private static final String URL = "https://openrouter.ai/api/v1/chat/completions";
+    /** reincercarile, bugetul de timp si circuitul acestui client. */
+    private final Resilience resilience;
 
-    /** client http  folosit pentru trimiterea cererilor. */
-    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(15)).build();
+    /** timeout-ul maxim al unei singure incercari. */
+    private static final Duration ATTEMPT_TIMEOUT = Duration.ofSeconds(60);
 
-    /** mapper json (jackson) pentru construire json. */
-    private final ObjectMapper om = new ObjectMapper();
+    /** pauza maxima intre doua linii ale unui stream; peste ea incercarea esueaza (temporar) si conexiunea se inchide. */
+    private static final Duration STREAM_IDLE_TIMEOUT = Duration.ofSeconds(30);
 
-    /** cheia api citita din variabila de mediu openrouter_api_key. */
-    private final String key = System.getenv("OPENROUTER_API_KEY");
+    /** cheia api (implicit citita din variabila de mediu openrouter_api_key). */
+    private final String key;
 
     /**
-     * constructor: verifica existenta cheii api in variabilele de mediu.
+     * constructor: endpoint-ul din openrouter_url (ex. serverul local de test) sau openrouter, cheia din openrouter_api_key.
      *
      * @throws illegalstateexception daca openrouter_api_key lipseste sau este goala.
+     * @throws illegalargumentexception daca openrouter_url nu este un url valid.
      */
     public OpenRouterClient() {
-        if (key == null || key.isBlank()) throw new IllegalStateException("OPENROUTER_API_KEY lipsa");
+        this(endpointFromEnv(), System.getenv("OPENROUTER_API_KEY"));
+    }
+
+    /**
+     * constructor cu endpoint si cheie explicite (ex. un server local care imita api-ul chat completions).
+     *
+     * @param endpoint url-ul complet pentru chat completions.
+     * @param key cheia api trimisa in header-ul authorization.
+     * @throws ainotconfiguredexception daca cheia lipseste sau este goala.
+     */
+    public OpenRouterClient(URI endpoint, String key) {
+        this(endpoint, key, defaultExecutor());
+    }
+
+    /**
+     * constructor cu endpoint, cheie si executorul pe care clientul http ruleaza i/o si callback-urile.
+     *
+     * @param endpoint url-ul complet pentru chat completions.
+     * @param key cheia api trimisa in header-ul authorization.
+     * @param executor executorul clientului http (callback-uri, citirea stream-urilor).
+     * @throws ainotconfiguredexception daca cheia lipseste sau este goala.
+     */
+    public OpenRouterClient(URI endpoint, String key, Executor executor) {
+        this(endpoint, key, executor, Resilience.defaults());
+    }
+
+    /**
+     * constructor complet cu politica de reincercari / circuit breaker data.
+     *
+     * @param endpoint url-ul complet pentru chat completions.
+     * @param key cheia api trimisa in header-ul authorization.
+     * @param executor executorul clientului http.
+     * @param resilience reincercarile, bugetul de timp si circuitul folosite de acest client.
+     * @throws ainotconfiguredexception daca cheia lipseste sau este goala.
+     */
+    public OpenRouterClient(URI endpoint, String key, Executor executor, Resilience resilience) {
+        if (key == null || key.isBlank()) throw new AiNotConfiguredException("OPENROUTER_API_KEY lipsa");
+        this.endpoint = endpoint;
+        this.key = key;
+        this.resilience = resilience;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(15))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * returneaza clientul partajat (endpoint din openrouter_url sau openrouter, cheie din openrouter_api_key).
+     * toate mesajele folosesc acelasi httpclient deci dupa primul mesaj conexiunea este refolosita.
+     *
+     * @return clientul partajat.
+     * @throws illegalstateexception daca openrouter_api_key lipseste sau este goala.
+     */
+    public static OpenRouterClient shared() {
+        OpenRouterClient c = shared;
+        if (c == null) {
+            synchronized (OpenRouterClient.class) {
+                c = shared;
+                if (c == null) shared = c = new OpenRouterClient();
+            }
+        }
+        return c;
     }
 
     /**
      * trimite un mesaj catre model si intoarce raspunsul generat.
+     * foloseste aceleasi reincercari, buget de timp si circuit breaker ca varianta asincrona.
      *
      * @param model numele modelului folosit
      * @param system mesajul system instructiuni pentru model
@@ -47,40 +168,450 @@ public final class OpenRouterClient {u
      * @param temperature temperatura pentru variatie (0 = determinist mai mare = mai creativ).
      * @param maxtokens numarul maxim de tokeni generati in raspuns.
      * @return continutul raspunsului
-     * @throws runtimeexception daca request-ul esueaza
+     * @throws runtimeexception daca request-ul esueaza (aicallexception pentru erorile http / retea)
      */
     public String chat(String model, String system, String user, double temperature, int maxTokens) {
+        CompletableFuture<String> f = chatAsync(model, system, user, temperature, maxTokens);
         try {
-            var reqJson = om.createObjectNode();
-            reqJson.put("model", model);
-
-            var messages = om.createArrayNode();
-            messages.add(om.createObjectNode().put("role", "system").put("content", system));
-            messages.add(om.createObjectNode().put("role", "user").put("content", user));
-
-            reqJson.set("messages", messages);
-            reqJson.put("temperature", temperature);
-            reqJson.put("max_tokens", maxTokens);
-
-            String body = reqJson.toString();
-
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(URL))
-                    .timeout(Duration.ofSeconds(60))
-                    .header("Authorization", "Bearer " + key)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-            if (resp.statusCode() / 100 != 2) {
-                throw new RuntimeException("Eroare OpenRouter " + resp.statusCode() + ": " + resp.body());
-            }
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Apel OpenRouter intrerupt", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException r) throw r;
+            throw new RuntimeException("Apel OpenRouter esuat: " + cause.getMessage(), cause);
+        }
+    }
 
-            JsonNode json = om.readTree(resp.body());
-            return json.at("/choices/0/message/content").asText("");
+    /**
+     * varianta asincrona a lui chat: nu blocheaza firul apelant.
+     * erorile temporare (retea, 408, 429, 5xx) se reincearca in bugetul de timp al apelului.
+     * anularea future-ului returnat anuleaza si cererea http in curs.
+     *
+     * @param model numele modelului folosit
+     * @param system mesajul system instructiuni pentru model
+     * @param user mesajul userului
+     * @param temperature temperatura pentru variatie.
+     * @param maxtokens numarul maxim de tokeni generati in raspuns.
+     * @return future cu continutul raspunsului; esueaza cu runtimeexception daca request-ul esueaza.
+     */
+    public CompletableFuture<String> chatAsync(String model, String system, String user, double temperature, int maxTokens) {
+        return chatAsync(model, List.of(AiMessage.system(system), AiMessage.user(user)), temperature, maxTokens);
+    }
+
+    /**
+     * trimite o conversatie (lista de mesaje cu roluri native) si intoarce raspunsul generat.
+     * mesajele care nu se schimba intre ture (system, profil) trebuie puse la inceput: furnizorii
+     * refolosesc prefixul identic al cererilor (prompt caching), deci doar turele noi costa.
+     *
+     * @param model numele modelului folosit
+     * @param messages mesajele in ordine (system..., apoi ture user/assistant, ultimul mesaj user).
+     * @param temperature temperatura pentru variatie.
+     * @param maxtokens numarul maxim de tokeni generati in raspuns.
+     * @return future cu continutul raspunsului; esueaza cu runtimeexception daca request-ul esueaza.
+     */
+    public CompletableFuture<String> chatAsync(String model, List<AiMessage> messages, double temperature, int maxTokens) {
+        byte[] body;
+        try {
+            body = requestBody(model, messages, temperature, maxTokens, false);
         } catch (Exception e) {
-            throw new RuntimeException("Apel OpenRouter esuat: " + e.getMessage(), e);
+            return CompletableFuture.failedFuture(new RuntimeException("Apel OpenRouter esuat: " + e.getMessage(), e));
+        }
+        return timed("ai.chat", resilience.execute(timeout -> sendOnce(request(body, timeout, false)), () -> true));
+    }
+
+    /**
+     * trimite un mesaj catre model cu "stream": true si consuma raspunsul (server-sent events) pe masura ce vine.
+     * fiecare fragment de text este dat lui ontoken imediat, pe un fir al clientului http (nu pe edt).
+     * o eroare temporara se reincearca doar daca nu s-a livrat inca niciun fragment (altfel textul s-ar dubla).
+     * anularea future-ului returnat inchide conexiunea si opreste generarea.
+     *
+     * @param model numele modelului folosit
+     * @param system mesajul system instructiuni pentru model
+     * @param user mesajul userului
+     * @param temperature temperatura pentru variatie.
+     * @param maxtokens numarul maxim de tokeni generati in raspuns.
+     * @param ontoken primeste fiecare fragment de text in ordinea sosirii.
+     * @return future cu textul complet; esueaza cu runtimeexception daca request-ul sau stream-ul esueaza.
+     */
+    public CompletableFuture<String> chatStream(String model, String system, String user, double temperature, int maxTokens,
+                                               Consumer<String> onToken) {
+        return chatStream(model, List.of(AiMessage.system(system), AiMessage.user(user)), temperature, maxTokens, onToken);
+    }
+
+    /**
+     * varianta cu streaming a lui chatasync(model, messages, ...): fragmentele ajung la ontoken pe masura ce sunt generate.
+     *
+     * @param model numele modelului folosit
+     * @param messages mesajele in ordine (prefixul stabil primul, ultimul mesaj user).
+     * @param temperature temperatura pentru variatie.
+     * @param maxtokens numarul maxim de tokeni generati in raspuns.
+     * @param ontoken primeste fiecare fragment de text in ordinea sosirii.
+     * @return future cu textul complet; esueaza cu runtimeexception daca request-ul sau stream-ul esueaza.
+     */
+    public CompletableFuture<String> chatStream(String model, List<AiMessage> messages, double temperature, int maxTokens,
+                                               Consumer<String> onToken) {
+        byte[] body;
+        try {
+            body = requestBody(model, messages, temperature, maxTokens, true);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Apel OpenRouter esuat: " + e.getMessage(), e));
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        Consumer<String> tracked = token -> {
+            started.set(true);
+            onToken.accept(token);
+        };
+        return timed("ai.stream",
+                resilience.execute(timeout -> streamOnce(request(body, timeout, true), tracked), () -> !started.get()));
+    }
+
+    /**
+     * inregistreaza durata totala a apelului (cu reincercari) in metrica data cand future-ul se termina;
+     * anularile sunt doar numarate (ai.cancelled), nu intra in latente.
+     *
+     * @param name numele operatiei (ai.chat sau ai.stream).
+     * @param f future-ul apelului (returnat neschimbat, ca anularea sa ajunga la cerere).
+     * @return acelasi future.
+     */
+    private static CompletableFuture<String> timed(String name, CompletableFuture<String> f) {
+        long start = System.nanoTime();
+        f.whenComplete((r, ex) -> {
+            if (f.isCancelled()) Metrics.count("ai.cancelled", 1);
+            else Metrics.op(name).record(System.nanoTime() - start, ex == null ? 1 : 0, ex != null);
+        });
+        return f;
+    }
+
+    /**
+     * handler de corp care inregistreaza timpul pana la primul octet (sosirea header-elor) al unei incercari.
+     *
+     * @param handler handler-ul efectiv.
+     * @param <T> tipul corpului.
+     * @return handler-ul cronometrat.
+     */
+    private static <T> HttpResponse.BodyHandler<T> ttfb(HttpResponse.BodyHandler<T> handler) {
+        long start = System.nanoTime();
+        return info -> {
+            Metrics.record("ai.ttfb", System.nanoTime() - start);
+            return handler.apply(info);
+        };
+    }
+
+    /**
+     * returneaza contoarele de reincercari / esecuri si starea circuitului pentru acest client.
+     *
+     * @return statisticile stratului de rezilienta.
+     */
+    public Resilience.Stats resilienceStats() {
+        return resilience.stats();
+    }
+
+    /**
+     * o singura incercare fara streaming.
+     *
+     * @param req cererea http.
+     * @return future cu textul raspunsului; anularea lui anuleaza cererea.
+     */
+    private CompletableFuture<String> sendOnce(HttpRequest req) {
+        CompletableFuture<HttpResponse<String>> send = http.sendAsync(req, ttfb(HttpResponse.BodyHandlers.ofString()));
+        CompletableFuture<String> out = send.handle((resp, ex) -> {
+            if (ex != null) throw networkError(ex);
+            try {
+                return parse(resp);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Apel OpenRouter esuat: " + e.getMessage(), e);
+            }
+        });
+        out.whenComplete((r, ex) -> {
+            if (out.isCancelled()) send.cancel(true);
+        });
+        return out;
+    }
+
+    /**
+     * o singura incercare cu streaming.
+     *
+     * @param req cererea http.
+     * @param ontoken primeste fragmentele de text.
+     * @return future cu textul complet; anularea lui inchide stream-ul.
+     */
+    private CompletableFuture<String> streamOnce(HttpRequest req, Consumer<String> onToken) {
+        long start = System.nanoTime();
+        AtomicReference<Stream<String>> body = new AtomicReference<>();
+        AtomicLong lastLine = new AtomicLong();
+        AtomicReference<CompletableFuture<String>> self = new AtomicReference<>();
+        CompletableFuture<HttpResponse<Stream<String>>> send = http.sendAsync(req, ttfb(HttpResponse.BodyHandlers.ofLines()));
+        CompletableFuture<String> out = send.handle((resp, ex) -> {
+            if (ex != null) throw networkError(ex);
+            body.set(resp.body());
+            lastLine.set(System.nanoTime());
+            watchIdle(self.get(), lastLine, body);
+            try (Stream<String> lines = resp.body()) {
+                return readEvents(resp.statusCode(), retryAfter(resp), networkLines(lines.iterator()), onToken, start, lastLine);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Apel OpenRouter esuat: " + e.getMessage(), e);
+            }
+        });
+        self.set(out);
+        // daca header-ele au sosit inainte ca out sa fie publicat, handler-ul nu a putut porni supravegherea
+        if (lastLine.get() != 0) watchIdle(out, lastLine, body);
+        out.whenComplete((r, ex) -> {
+            if (!out.isCancelled()) return;
+            send.cancel(true);
+            Stream<String> lines = body.get();
+            if (lines != null) lines.close();
+        });
+        return out;
+    }
+
+    /**
+     * verifica periodic ca stream-ul inca trimite linii; dupa stream_idle_timeout fara nicio linie esueaza
+     * incercarea cu o eroare temporara si inchide corpul, ca firul blocat in citire sa fie eliberat.
+     *
+     * @param out future-ul incercarii (null daca handler-ul a rulat inainte de a fi publicat).
+     * @param lastLine momentul ultimei linii primite (system.nanotime).
+     * @param body corpul raspunsului.
+     */
+    private static void watchIdle(CompletableFuture<String> out, AtomicLong lastLine, AtomicReference<Stream<String>> body) {
+        if (out == null || out.isDone()) return;
+        long left = STREAM_IDLE_TIMEOUT.toNanos() - (System.nanoTime() - lastLine.get());
+        if (left > 0) {
+            CompletableFuture.delayedExecutor(left, TimeUnit.NANOSECONDS).execute(() -> watchIdle(out, lastLine, body));
+            return;
+        }
+        if (out.completeExceptionally(new AiCallException("Stream-ul OpenRouter nu a mai trimis date de "
+                + STREAM_IDLE_TIMEOUT.toSeconds() + "s.", -1, null, true, null))) {
+            Stream<String> lines = body.get();
+            if (lines != null) lines.close();
+        }
+    }
+
+    /**
+     * transforma eroarea de transport a clientului http intr-o aicallexception (temporara pentru i/o si timeout).
+     *
+     * @param ex eroarea primita de la sendasync.
+     * @return exceptia de aruncat.
+     */
+    private static RuntimeException networkError(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof CancellationException c) return c;
+        return new AiCallException("Apel OpenRouter esuat: " + cause.getMessage(), -1, null,
+                cause instanceof IOException, cause);
+    }
+
+    /**
+     * liniile corpului, cu erorile de citire (conexiune cazuta la mijlocul raspunsului, pe care ofLines le
+     * arunca ca uncheckedioexception) transformate in aicallexception temporara. exceptiile din ontoken nu
+     * trec pe aici, deci raman neschimbate.
+     *
+     * @param lines iteratorul liniilor din corpul raspunsului.
+     * @return acelasi iterator, cu erorile de retea traduse.
+     */
+    private static Iterator<String> networkLines(Iterator<String> lines) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return lines.hasNext();
+                } catch (UncheckedIOException e) {
+                    throw networkError(e.getCause());
+                }
+            }
+
+            @Override
+            public String next() {
+                try {
+                    return lines.next();
+                } catch (UncheckedIOException e) {
+                    throw networkError(e.getCause());
+                }
+            }
+        };
+    }
+
+    /**
+     * citeste header-ul retry-after (secunde sau data http).
+     *
+     * @param resp raspunsul http.
+     * @return intarzierea ceruta sau null daca lipseste / nu poate fi citita.
+     */
+    private static Duration retryAfter(HttpResponse<?> resp) {
+        String v = resp.headers().firstValue("Retry-After").orElse(null);
+        if (v == null || v.isBlank()) return null;
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(v.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(v.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration d = Duration.between(ZonedDateTime.now(at.getZone()), at);
+                return d.isNegative() ? Duration.ZERO : d;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
         }
     }
+
+    /**
+     * citeste evenimentele sse ("data: {json}") pana la "data: [DONE]" si aduna fragmentele de text.
+     * liniile de comentariu (": ...") si cele goale sunt ignorate.
+     *
+     * @param status statusul http al raspunsului.
+     * @param retryafter intarzierea ceruta de server prin retry-after (poate fi null).
+     * @param lines liniile corpului raspunsului.
+     * @param ontoken primeste fiecare fragment de text.
+     * @param start momentul trimiterii cererii (system.nanotime), pentru timpul pana la primul token.
+     * @param lastLine actualizat la fiecare linie primita (pentru stream_idle_timeout).
+     * @return textul complet.
+     * @throws exception daca statusul nu este 2xx, serverul trimite o eroare sau json-ul nu poate fi citit.
+     */
+    private String readEvents(int status, Duration retryAfter, Iterator<String> lines, Consumer<String> onToken,
+                              long start, AtomicLong lastLine) throws Exception {
+        if (status / 100 != 2) {
+            StringBuilder err = new StringBuilder();
+            while (lines.hasNext()) err.append(lines.next());
+            throw AiCallException.forStatus(status, err.toString(), retryAfter);
+        }
+
+        StringBuilder full = new StringBuilder();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            lastLine.set(System.nanoTime());
+            if (!line.startsWith("data:")) continue;
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) break;
+            if (data.isEmpty()) continue;
+
+            JsonNode json = READER.readTree(data);
+            if (json.has("error")) {
+                int code = json.at("/error/code").asInt(-1);
+                String msg = json.at("/error/message").asText(json.get("error").toString());
+                throw new AiCallException("Eroare OpenRouter: " + msg, code, null,
+                        code == 408 || code == 429 || code / 100 == 5, null);
+            }
+            recordUsage(json);
+            String delta = json.at("/choices/0/delta/content").asText("");
+            if (delta.isEmpty()) continue;
+            if (full.length() == 0) Metrics.record("ai.first_token", System.nanoTime() - start);
+            full.append(delta);
+            onToken.accept(delta);
+        }
+        return full.toString();
+    }
+
+    /**
+     * construieste corpul json al cererii cu mesajele date si parametrii de generare.
+     *
+     * @param model numele modelului folosit
+     * @param messages mesajele conversatiei, in ordine.
+     * @param temperature temperatura pentru variatie.
+     * @param maxtokens numarul maxim de tokeni generati in raspuns.
+     * @param stream true pentru raspuns in streaming (server-sent events).
+     * @return corpul json serializat.
+     */
+    public static byte[] requestBody(String model, List<AiMessage> messages, double temperature, int maxTokens,
+                                     boolean stream) throws Exception {
+        var reqJson = OM.createObjectNode();
+        reqJson.put("model", model);
+
+        var arr = reqJson.putArray("messages");
+        for (AiMessage m : messages) arr.addObject().put("role", m.role()).put("content", m.content());
+
+        reqJson.put("temperature", temperature);
+        reqJson.put("max_tokens", maxTokens);
+        if (stream) reqJson.put("stream", true);
+
+        return WRITER.writeValueAsBytes(reqJson);
+    }
+
+    /**
+     * construieste cererea http pentru o incercare; timeout-ul este cel mult 60s si cel mult bugetul ramas.
+     *
+     * @param body corpul json serializat.
+     * @param remaining timpul ramas din bugetul apelului.
+     * @param stream true pentru raspuns in streaming.
+     * @return cererea http gata de trimis.
+     */
+    private HttpRequest request(byte[] body, Duration remaining, boolean stream) {
+        return HttpRequest.newBuilder()
+                .uri(endpoint)
+                .timeout(remaining.compareTo(ATTEMPT_TIMEOUT) < 0 ? remaining : ATTEMPT_TIMEOUT)
+                .header("Authorization", "Bearer " + key)
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    /**
+     * verifica statusul raspunsului si extrage textul generat.
+     *
+     * @param resp raspunsul http.
+     * @return continutul raspunsului (gol daca lipseste).
+     * @throws exception daca statusul nu este 2xx (aicallexception) sau json-ul nu poate fi citit.
+     */
+    private String parse(HttpResponse<String> resp) throws Exception {
+        if (resp.statusCode() / 100 != 2) {
+            throw AiCallException.forStatus(resp.statusCode(), resp.body(), retryAfter(resp));
+        }
+
+        return responseContent(resp.body());
+    }
+
+    /**
+     * extrage textul generat dintr-un raspuns json complet (fara streaming).
+     *
+     * @param body corpul raspunsului.
+     * @return continutul raspunsului (gol daca lipseste).
+     * @throws exception daca json-ul nu poate fi citit.
+     */
+    public static String responseContent(String body) throws Exception {
+        JsonNode json = READER.readTree(body);
+        recordUsage(json);
+        return json.at("/choices/0/message/content").asText("");
+    }
+
+    /** aduna tokenii raportati de furnizor (campul usage, daca exista) la contoarele ai.tokens.*. */
+    private static void recordUsage(JsonNode json) {
+        JsonNode usage = json.get("usage");
+        if (usage == null || !usage.isObject()) return;
+        Metrics.count("ai.tokens.prompt", usage.path("prompt_tokens").asLong(0));
+        Metrics.count("ai.tokens.completion", usage.path("completion_tokens").asLong(0));
+    }
+
+    /**
+     * citeste endpoint-ul din openrouter_url iar daca lipseste foloseste openrouter.
+     *
+     * @return url-ul complet pentru chat completions.
+     * @throws illegalargumentexception daca valoarea nu este un url http(s) absolut.
+     */
+    private static URI endpointFromEnv() {
+        String v = System.getenv("OPENROUTER_URL");
+        if (v == null || v.isBlank()) return URI.create(DEFAULT_URL);
+        URI uri = URI.create(v.trim());
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+            throw new IllegalArgumentException("OPENROUTER_URL invalid: " + v);
+        }
+        return uri;
+    }
+
+    /**
+     * executorul implicit al clientului http: fire daemon, ca sa nu tina aplicatia pornita la inchidere.
+     *
+     * @return executor cu fire daemon numite aicoach-ai-n.
+     */
+    private static ExecutorService defaultExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "aicoach-ai-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 }
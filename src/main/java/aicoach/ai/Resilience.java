@@ -0,0 +1,282 @@
+package aicoach.ai;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * @file resilience.java
+ * @brief reincercari cu backoff exponential si jitter, buget de timp per apel si circuit breaker pentru apelurile ai.
+ *
+ * un apel logic poate face mai multe incercari: doar erorile temporare (retea, timeout, 408, 429, 5xx) se
+ * reincearca, cu pauza aleatoare in [0, min(maxdelay, basedelay * 2^(n-1))] sau cat cere retry-after.
+ * toate incercarile impart acelasi buget (deadline); fiecare incercare primeste ca timeout timpul ramas, iar la
+ * expirarea bugetului incercarea in curs este anulata chiar daca este blocata in citirea corpului raspunsului.
+ * dupa failurethreshold esecuri temporare consecutive circuitul se deschide si apelurile esueaza imediat
+ * timp de openfor; apoi o singura cerere de proba decide daca circuitul se inchide sau se redeschide.
+ */
+public final class Resilience {
+
+    /** numarul implicit de incercari pentru un apel (prima + reincercari). */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final long deadlineNanos;
+    private final CircuitBreaker breaker;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    /**
+     * @param maxAttempts numarul maxim de incercari pentru un apel (minim 1).
+     * @param baseDelay pauza de baza inainte de prima reincercare.
+     * @param maxDelay pauza maxima intre incercari.
+     * @param deadline bugetul total de timp al unui apel, cu tot cu reincercari.
+     * @param failureThreshold cate esecuri temporare consecutive deschid circuitul.
+     * @param openFor cat timp ramane circuitul deschis inainte de cererea de proba.
+     */
+    public Resilience(int maxAttempts, Duration baseDelay, Duration maxDelay, Duration deadline,
+                      int failureThreshold, Duration openFor) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.deadlineNanos = deadline.toNanos();
+        this.breaker = new CircuitBreaker(Math.max(1, failureThreshold), openFor.toNanos());
+    }
+
+    /**
+     * setarile implicite: 3 incercari, pauza 500ms..8s, buget 90s, circuit deschis 30s dupa 5 esecuri.
+     *
+     * @return o instanta noua cu setarile implicite (fiecare client are circuitul lui).
+     */
+    public static Resilience defaults() {
+        return new Resilience(DEFAULT_MAX_ATTEMPTS, Duration.ofMillis(500), Duration.ofSeconds(8),
+                Duration.ofSeconds(90), 5, Duration.ofSeconds(30));
+    }
+
+    /**
+     * ruleaza un apel cu reincercari, buget de timp si circuit breaker.
+     * anularea future-ului returnat anuleaza incercarea in curs si opreste reincercarile.
+     *
+     * @param attempt porneste o incercare; primeste timpul ramas din buget (de folosit ca timeout).
+     * @param retryAllowed verificat inainte de fiecare reincercare (ex. false dupa ce streaming-ul a livrat text).
+     * @param <T> tipul rezultatului.
+     * @return future cu rezultatul primei incercari reusite sau cu ultima eroare.
+     */
+    public <T> CompletableFuture<T> execute(Function<Duration, CompletableFuture<T>> attempt, BooleanSupplier retryAllowed) {
+        calls.incrementAndGet();
+        CompletableFuture<T> out = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+        out.whenComplete((r, ex) -> {
+            if (!out.isCancelled()) return;
+            cancelled.incrementAndGet();
+            CompletableFuture<T> f = current.get();
+            if (f != null) f.cancel(true);
+        });
+        long deadline = System.nanoTime() + deadlineNanos;
+        CompletableFuture.delayedExecutor(deadlineNanos, TimeUnit.NANOSECONDS)
+                .execute(() -> expire(out, current));
+        run(1, deadline, attempt, retryAllowed, out, current);
+        return out;
+    }
+
+    /**
+     * returneaza un instantaneu al contoarelor si starea circuitului.
+     *
+     * @return statisticile curente.
+     */
+    public Stats stats() {
+        return new Stats(calls.get(), successes.get(), failures.get(), retries.get(), timeouts.get(),
+                shortCircuited.get(), cancelled.get(), breaker.state());
+    }
+
+    /**
+     * bugetul apelului a expirat: esueaza apelul si anuleaza incercarea in curs (care inchide conexiunea),
+     * ca un corp sau un stream blocat dupa header-e sa nu tina apelul deschis la nesfarsit.
+     */
+    private <T> void expire(CompletableFuture<T> out, AtomicReference<CompletableFuture<T>> current) {
+        if (!out.completeExceptionally(new AiCallException("Timpul alocat apelului AI a expirat.", -1, null, false, null))) {
+            return;
+        }
+        timeouts.incrementAndGet();
+        failures.incrementAndGet();
+        CompletableFuture<T> f = current.get();
+        if (f != null) f.cancel(true);
+    }
+
+    /** porneste incercarea n si programeaza urmatoarea daca eroarea este temporara si bugetul permite. */
+    private <T> void run(int n, long deadline, Function<Duration, CompletableFuture<T>> attempt, BooleanSupplier retryAllowed,
+                         CompletableFuture<T> out, AtomicReference<CompletableFuture<T>> current) {
+        if (out.isDone()) return;
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            timeouts.incrementAndGet();
+            failures.incrementAndGet();
+            out.completeExceptionally(new AiCallException("Timpul alocat apelului AI a expirat.", -1, null, false, null));
+            return;
+        }
+        if (!breaker.tryAcquire()) {
+            shortCircuited.incrementAndGet();
+            failures.incrementAndGet();
+            out.completeExceptionally(new AiCallException(
+                    "Serviciul AI este indisponibil momentan. Reincearca in cateva secunde.", -1, null, false, null));
+            return;
+        }
+
+        CompletableFuture<T> f;
+        try {
+            f = attempt.apply(Duration.ofNanos(remaining));
+        } catch (RuntimeException e) {
+            f = CompletableFuture.failedFuture(e);
+        }
+        current.set(f);
+        if (out.isCancelled()) f.cancel(true);
+
+        f.whenComplete((r, ex) -> {
+            if (ex == null) {
+                breaker.onSuccess();
+                successes.incrementAndGet();
+                out.complete(r);
+                return;
+            }
+            Throwable cause = unwrap(ex);
+            if (cause instanceof CancellationException || out.isDone()) {
+                breaker.release();
+                return;
+            }
+            boolean transientError = isTransient(cause);
+            if (transientError) breaker.onFailure();
+            else breaker.onSuccess();
+            if (cause instanceof HttpTimeoutException) timeouts.incrementAndGet();
+
+            long delay = transientError ? delayNanos(n, cause) : 0;
+            boolean retry = transientError && n < maxAttempts && retryAllowed.getAsBoolean()
+                    && System.nanoTime() + delay < deadline;
+            if (!retry) {
+                failures.incrementAndGet();
+                out.completeExceptionally(cause);
+                return;
+            }
+            retries.incrementAndGet();
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS)
+                    .execute(() -> run(n + 1, deadline, attempt, retryAllowed, out, current));
+        });
+    }
+
+    /**
+     * pauza inainte de incercarea n+1: jitter complet peste backoff exponential, dar nu mai putin decat retry-after.
+     *
+     * @param n numarul incercarii care tocmai a esuat (de la 1).
+     * @param cause eroarea incercarii.
+     * @return pauza in nanosecunde.
+     */
+    private long delayNanos(int n, Throwable cause) {
+        long cap = Math.min(maxDelayNanos, baseDelayNanos << Math.min(n - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        if (cause instanceof AiCallException e && e.retryAfter() != null) {
+            delay = Math.max(delay, e.retryAfter().toNanos());
+        }
+        return delay;
+    }
+
+    /**
+     * decide daca o eroare este temporara (merita reincercata si conteaza pentru circuit).
+     *
+     * @param t eroarea incercarii.
+     * @return true pentru erori de retea, timeout si statusuri 408/429/5xx.
+     */
+    private static boolean isTransient(Throwable t) {
+        if (t instanceof AiCallException e) return e.retryable();
+        return t instanceof java.io.IOException;
+    }
+
+    /**
+     * scoate cauza reala dintr-o exceptie ambalata de completablefuture.
+     *
+     * @param t exceptia primita.
+     * @return cauza originala.
+     */
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /** starea circuitului: closed = apeluri normale, open = esec imediat, half_open = o cerere de proba in curs. */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * contoarele stratului de rezilienta: calls = apeluri logice, retries = incercari suplimentare,
+     * shortcircuited = apeluri refuzate cu circuitul deschis.
+     */
+    public record Stats(long calls, long successes, long failures, long retries, long timeouts,
+                        long shortCircuited, long cancelled, State circuit) {}
+
+    /** circuit breaker pe esecuri consecutive, cu o singura cerere de proba in starea half_open. */
+    private static final class CircuitBreaker {
+        private final int threshold;
+        private final long openForNanos;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean probeInFlight;
+
+        private CircuitBreaker(int threshold, long openForNanos) {
+            this.threshold = threshold;
+            this.openForNanos = openForNanos;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openForNanos) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.OPEN) return false;
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) return false;
+                probeInFlight = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= threshold) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+            }
+            probeInFlight = false;
+        }
+
+        synchronized void release() {
+            probeInFlight = false;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package aicoach.dao;
+
+import aicoach.db.Db;
+import aicoach.metrics.Metrics;
+import aicoach.model.CachedResponse;
+
+import java.sql.*;
+
+/**
+ * @file aicachedao.java
+ * @brief acces la tabela ai_cache (raspunsuri ai salvate dupa cheia cererii).
+ *
+ * cheia este hash-ul cererii (model + prompt-uri + parametri); created_at este in milisecunde epoch
+ * ca expirarea sa se faca printr-o simpla comparatie numerica.
+ */
+public final class AiCacheDao {
+
+    /**
+     * returneaza raspunsul salvat pentru cheie daca nu este mai vechi decat notbefore.
+     *
+     * @param key cheia cererii.
+     * @param notBefore momentul (ms epoch) dinaintea caruia intrarile sunt considerate expirate.
+     * @return continutul salvat si momentul crearii lui sau null daca lipseste / a expirat.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public CachedResponse get(String key, long notBefore) {
+        try (Metrics.Timer t = Metrics.time("dao.ai_cache.get");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select content, created_at from ai_cache where cache_key = ? and created_at >= ?")) {
+            ps.setString(1, key);
+            ps.setLong(2, notBefore);
+            try (ResultSet rs = ps.executeQuery()) {
+                return t.ok(rs.next() ? new CachedResponse(rs.getString(1), rs.getLong(2)) : null);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Citire cache ai esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * salveaza (sau inlocuieste) raspunsul pentru cheie cu momentul curent ca data a crearii.
+     *
+     * @param key cheia cererii.
+     * @param model modelul care a generat raspunsul (informativ).
+     * @param content textul raspunsului.
+     * @throws runtimeexception daca apare o eroare sql la salvare.
+     */
+    public void put(String key, String model, String content) {
+        try (Metrics.Timer t = Metrics.time("dao.ai_cache.put")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into ai_cache(cache_key, model, content, created_at) values(?, ?, ?, ?) " +
+                                "on conflict(cache_key) do update set model = excluded.model, " +
+                                "content = excluded.content, created_at = excluded.created_at")) {
+                    ps.setString(1, key);
+                    ps.setString(2, model);
+                    ps.setString(3, content);
+                    ps.setLong(4, System.currentTimeMillis());
+                    return ps.executeUpdate();
+                }
+            }));
+        } catch (SQLException e) {
+            throw new RuntimeException("Salvare cache ai esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * sterge intrarile expirate si pastreaza cel mult maxrows intrari (cele mai noi).
+     *
+     * @param notBefore intrarile create inainte de acest moment (ms epoch) se sterg.
+     * @param maxRows numarul maxim de intrari pastrate.
+     * @return numarul de randuri sterse.
+     * @throws runtimeexception daca apare o eroare sql la stergere.
+     */
+    public int purge(long notBefore, int maxRows) {
+        try (Metrics.Timer t = Metrics.time("dao.ai_cache.purge")) {
+            return t.ok(Db.write(c -> {
+                int n;
+                try (PreparedStatement ps = c.prepareStatement("delete from ai_cache where created_at < ?")) {
+                    ps.setLong(1, notBefore);
+                    n = ps.executeUpdate();
+                }
+                try (PreparedStatement ps = c.prepareStatement(
+                        "delete from ai_cache where cache_key not in " +
+                                "(select cache_key from ai_cache order by created_at desc limit ?)")) {
+                    ps.setInt(1, maxRows);
+                    n += ps.executeUpdate();
+                }
+                return n;
+            }));
+        } catch (SQLException e) {
+            throw new RuntimeException("Curatare cache ai esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * sterge toate raspunsurile salvate.
+     *
+     * @throws runtimeexception daca apare o eroare sql la stergere.
+     */
+    public void clear() {
+        try (Metrics.Timer t = Metrics.time("dao.ai_cache.clear")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement("delete from ai_cache")) {
+                    return ps.executeUpdate();
+                }
+            }));
+        } catch (SQLException e) {
+            throw new RuntimeException("Stergere cache ai esuata: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,24 +1,31 @@
 package aicoach.dao;
 
 import aicoach.db.Db;
+import aicoach.metrics.Metrics;
 import aicoach.model.ChatMessage;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @file chatdao.java
  * @brief acces la tabela chat_history (listare mesaje inserare stergere).
  *
- * permite citirea istoricului de chat pentru un utilizator salvarea unui mesaj nou
- * si stergerea intregului istoric pentru utilizator.
+ * permite citirea istoricului de chat pentru un utilizator (integral sau pe pagini keyset dupa id)
+ * salvarea unui mesaj nou si stergerea intregului istoric pentru utilizator.
  */
 public final class ChatDao {
 
+    /** cate randuri cere cursorul odata la parcurgerea cu foreach. */
+    private static final int FETCH_SIZE = 256;
+
     /**
      * returneaza lista de mesaje din istoricul conversatiei pentru un utilizator limitata la un numar maxim de randuri.
-     * mesajele sunt ordonate crescator dupa id (de la cele mai vechi la cele mai noi).
+     * mesajele sunt ordonate crescator dupa id (de la cele mai vechi la cele mai noi), deci limita taie
+     * mesajele noi; pentru ultimele mesaje foloseste {@link #latest(long, int)}.
      *
      * @param userid id-ul utilizatorului.
      * @param limit numarul maxim de mesaje returnate.
@@ -26,7 +33,8 @@ public final class ChatDao {
      * @throws runtimeexception daca apare o eroare sql la interogare.
      */
     public List<ChatMessage> list(long userId, int limit) {
-        try (Connection c = Db.getConnection();
+        try (Metrics.Timer t = Metrics.time("dao.chat.list");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
                      "select id, user_id, role, message, timestamp from chat_history where user_id = ? order by id asc limit ?"
              )) {
@@ -35,7 +43,123 @@ public final class ChatDao {
             try (ResultSet rs = ps.executeQuery()) {
                 List<ChatMessage> out = new ArrayList<>();
                 while (rs.next()) out.add(map(rs));
-                return out;
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare chat esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returneaza ultimele n mesaje ale unui utilizator in ordine crescatoare dupa id.
+     * citeste descrescator pe indexul (user_id, id) deci costul depinde doar de n, nu de marimea istoricului.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param limit numarul maxim de mesaje returnate.
+     * @return cele mai noi mesaje (cele mai vechi dintre ele primele).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<ChatMessage> latest(long userId, int limit) {
+        try (Metrics.Timer t = Metrics.time("dao.chat.latest");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, role, message, timestamp from chat_history where user_id = ? order by id desc limit ?"
+             )) {
+            ps.setLong(1, userId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<ChatMessage> out = new ArrayList<>();
+                while (rs.next()) out.add(map(rs));
+                Collections.reverse(out);
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare chat esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returneaza mesajele scrise dupa un anumit id (paginare keyset) ordonate crescator dupa id.
+     * folosit pentru a adauga in ui doar mesajele noi fara sa recitim tot istoricul.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param afterid id-ul ultimului mesaj deja cunoscut (0 pentru inceput).
+     * @param limit numarul maxim de mesaje returnate.
+     * @return mesajele cu id mai mare decat afterid (cele mai vechi primele).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<ChatMessage> after(long userId, long afterId, int limit) {
+        try (Metrics.Timer t = Metrics.time("dao.chat.after");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, role, message, timestamp from chat_history where user_id = ? and id > ? order by id asc limit ?"
+             )) {
+            ps.setLong(1, userId);
+            ps.setLong(2, afterId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<ChatMessage> out = new ArrayList<>();
+                while (rs.next()) out.add(map(rs));
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare chat esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returneaza pagina de mesaje dinaintea unui anumit id (paginare keyset inapoi).
+     * interogarea citeste descrescator ca sa ia cele mai apropiate mesaje apoi lista este intoarsa
+     * in ordine crescatoare pentru afisare.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param beforeid id-ul celui mai vechi mesaj deja afisat.
+     * @param limit numarul maxim de mesaje returnate.
+     * @return mesajele cu id mai mic decat beforeid (cele mai vechi primele).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<ChatMessage> before(long userId, long beforeId, int limit) {
+        try (Metrics.Timer t = Metrics.time("dao.chat.before");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, role, message, timestamp from chat_history where user_id = ? and id < ? order by id desc limit ?"
+             )) {
+            ps.setLong(1, userId);
+            ps.setLong(2, beforeId);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<ChatMessage> out = new ArrayList<>();
+                while (rs.next()) out.add(map(rs));
+                Collections.reverse(out);
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare chat esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * parcurge tot istoricul de chat al unui utilizator (crescator dupa id) direct din cursor, fara a-l strange
+     * intr-o lista. conexiunea de citire ramane imprumutata pana se termina parcurgerea.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param action apelata pentru fiecare mesaj.
+     * @return numarul de mesaje parcurse.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public int forEach(long userId, Consumer<ChatMessage> action) {
+        try (Metrics.Timer t = Metrics.time("dao.chat.forEach");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, role, message, timestamp from chat_history where user_id = ? order by id asc"
+             )) {
+            ps.setLong(1, userId);
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                int n = 0;
+                for (; rs.next(); n++) action.accept(map(rs));
+                t.done(n);
+                return n;
             }
         } catch (SQLException e) {
             throw new RuntimeException("Listare chat esuata: " + e.getMessage(), e);
@@ -52,35 +176,46 @@ public final class ChatDao {
      * @throws runtimeexception daca apare o eroare sql la inserare.
      */
     public long insert(long userId, String role, String message) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(
-                     "insert into chat_history(user_id, role, message) values(?, ?, ?)",
-                     Statement.RETURN_GENERATED_KEYS
-             )) {
-            ps.setLong(1, userId);
-            ps.setString(2, role);
-            ps.setString(3, message);
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                rs.next();
-                return rs.getLong(1);
-            }
+        try (Metrics.Timer t = Metrics.time("dao.chat.insert")) {
+            return t.ok(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into chat_history(user_id, role, message) values(?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS
+                )) {
+                    ps.setLong(1, userId);
+                    ps.setString(2, role);
+                    ps.setString(3, message);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        rs.next();
+                        return rs.getLong(1);
+                    }
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Inserare chat esuata: " + e.getMessage(), e);
         }
     }
 
     /**
-     * sterge toate mesajele din istoricul de chat pentru un utilizator.
+     * sterge toate mesajele din istoricul de chat pentru un utilizator si rezumatul lor, in aceeasi tranzactie
+     * (un rezumat sters separat ar putea fi readus intre cele doua scrieri de o rezumare aflata in curs).
      *
      * @param userid id-ul utilizatorului.
      * @throws runtimeexception daca apare o eroare sql la stergere.
      */
     public void clear(long userId) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement("delete from chat_history where user_id = ?")) {
-            ps.setLong(1, userId);
-            ps.executeUpdate();
+        try (Metrics.Timer t = Metrics.time("dao.chat.clear")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement("delete from chat_history where user_id = ?");
+                     PreparedStatement summary = c.prepareStatement("delete from chat_summaries where user_id = ?")) {
+                    ps.setLong(1, userId);
+                    summary.setLong(1, userId);
+                    int n = ps.executeUpdate();
+                    summary.executeUpdate();
+                    return n;
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Stergere chat esuata: " + e.getMessage(), e);
         }
@@ -0,0 +1,74 @@
+package aicoach.dao;
+
+import aicoach.db.Db;
+import aicoach.metrics.Metrics;
+import aicoach.model.ChatSummary;
+
+import java.sql.*;
+
+/**
+ * @file chatsummarydao.java
+ * @brief acces la tabela chat_summaries (rezumatul incremental al conversatiei, unul per utilizator).
+ */
+public final class ChatSummaryDao {
+
+    /**
+     * returneaza rezumatul curent al conversatiei unui utilizator.
+     *
+     * @param userid id-ul utilizatorului.
+     * @return rezumatul sau null daca nu exista inca.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public ChatSummary get(long userId) {
+        try (Metrics.Timer t = Metrics.time("dao.chat_summary.get");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select user_id, summary, up_to_id, updated_at from chat_summaries where user_id = ?")) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return t.ok(null);
+                return t.ok(new ChatSummary(
+                        rs.getLong("user_id"),
+                        rs.getString("summary"),
+                        rs.getLong("up_to_id"),
+                        rs.getString("updated_at")
+                ));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Citire rezumat chat esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * salveaza rezumatul doar daca avanseaza (uptoid mai mare decat cel salvat), ca un rezumat
+     * calculat in paralel pe date mai vechi sa nu il suprascrie pe cel nou, si doar daca mesajul uptoid
+     * mai exista: un rezumat terminat dupa stergerea conversatiei nu o mai readuce in context.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param summary textul rezumatului.
+     * @param uptoid id-ul ultimului mesaj acoperit de rezumat.
+     * @throws runtimeexception daca apare o eroare sql la salvare.
+     */
+    public void upsert(long userId, String summary, long upToId) {
+        try (Metrics.Timer t = Metrics.time("dao.chat_summary.upsert")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into chat_summaries(user_id, summary, up_to_id, updated_at) " +
+                                "select ?, ?, ?, datetime('now') " +
+                                "where exists (select 1 from chat_history where id = ? and user_id = ?) " +
+                                "on conflict(user_id) do update set summary = excluded.summary, " +
+                                "up_to_id = excluded.up_to_id, updated_at = excluded.updated_at " +
+                                "where excluded.up_to_id > chat_summaries.up_to_id")) {
+                    ps.setLong(1, userId);
+                    ps.setString(2, summary);
+                    ps.setLong(3, upToId);
+                    ps.setLong(4, upToId);
+                    ps.setLong(5, userId);
+                    return ps.executeUpdate();
+                }
+            }));
+        } catch (SQLException e) {
+            throw new RuntimeException("Salvare rezumat chat esuata: " + e.getMessage(), e);
+        }
+    }
+}
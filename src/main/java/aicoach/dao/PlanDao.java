@@ -1,11 +1,13 @@
 package aicoach.dao;
 
 import aicoach.db.Db;
+import aicoach.metrics.Metrics;
 import aicoach.model.Plan;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @file plandao.java
@@ -15,6 +17,9 @@ import java.util.List;
  */
 public final class PlanDao {
 
+    /** cate randuri cere cursorul odata la parcurgerea cu foreach. */
+    private static final int FETCH_SIZE = 256;
+
     /**
      * returneaza lista de planuri pentru un utilizator ordonate descrescator dupa data crearii.
      *
@@ -23,14 +28,42 @@ public final class PlanDao {
      * @throws runtimeexception daca apare o eroare sql la interogare.
      */
     public List<Plan> list(long userId) {
-        try (Connection c = Db.getConnection();
+        try (Metrics.Timer t = Metrics.time("dao.plans.list");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
                      "select id, user_id, plan_type, content, created_at from plans where user_id = ? order by created_at desc, id desc")) {
             ps.setLong(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
                 List<Plan> out = new ArrayList<>();
                 while (rs.next()) out.add(map(rs));
-                return out;
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare planuri esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * parcurge planurile unui utilizator (cele mai vechi primele) direct din cursor, fara a le strange intr-o lista.
+     * conexiunea de citire ramane imprumutata pana se termina parcurgerea.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param action apelata pentru fiecare plan.
+     * @return numarul de planuri parcurse.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public int forEach(long userId, Consumer<Plan> action) {
+        try (Metrics.Timer t = Metrics.time("dao.plans.forEach");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, plan_type, content, created_at from plans where user_id = ? order by id")) {
+            ps.setLong(1, userId);
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                int n = 0;
+                for (; rs.next(); n++) action.accept(map(rs));
+                t.done(n);
+                return n;
             }
         } catch (SQLException e) {
             throw new RuntimeException("Listare planuri esuata: " + e.getMessage(), e);
@@ -47,19 +80,22 @@ public final class PlanDao {
      * @throws runtimeexception daca apare o eroare sql la inserare.
      */
     public long insert(long userId, String planType, String content) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(
-                     "insert into plans(user_id, plan_type, content) values(?, ?, ?)",
-                     Statement.RETURN_GENERATED_KEYS
-             )) {
-            ps.setLong(1, userId);
-            ps.setString(2, planType);
-            ps.setString(3, content);
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                rs.next();
-                return rs.getLong(1);
-            }
+        try (Metrics.Timer t = Metrics.time("dao.plans.insert")) {
+            return t.ok(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into plans(user_id, plan_type, content) values(?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS
+                )) {
+                    ps.setLong(1, userId);
+                    ps.setString(2, planType);
+                    ps.setString(3, content);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        rs.next();
+                        return rs.getLong(1);
+                    }
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Inserare plan esuata: " + e.getMessage(), e);
         }
@@ -74,11 +110,14 @@ public final class PlanDao {
      * @throws runtimeexception daca apare o eroare sql la stergere.
      */
     public void delete(long planId, long userId) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement("delete from plans where id = ? and user_id = ?")) {
-            ps.setLong(1, planId);
-            ps.setLong(2, userId);
-            ps.executeUpdate();
+        try (Metrics.Timer t = Metrics.time("dao.plans.delete")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement("delete from plans where id = ? and user_id = ?")) {
+                    ps.setLong(1, planId);
+                    ps.setLong(2, userId);
+                    return ps.executeUpdate();
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Stergere plan esuata: " + e.getMessage(), e);
         }
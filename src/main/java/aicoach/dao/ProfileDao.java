@@ -1,34 +1,97 @@
 package aicoach.dao;
 
 import aicoach.db.Db;
+import aicoach.metrics.Metrics;
 import aicoach.model.UserProfile;
 
 import java.sql.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @file profiledao.java
  * @brief acces la tabela user_profiles (citire si upsert profil).
  *
  * permite obtinerea profilului unui utilizator si salvarea lui (insert sau update) folosind upsert.
+ * profilurile citite raman intr-un cache lru comun tuturor instantelor (inclusiv profilurile lipsa);
+ * upsert si updateweight scot intrarea utilizatorului dupa scriere, deci urmatoarea citire vine din db.
  */
 public final class ProfileDao {
 
+    /** numarul maxim de profiluri tinute in memorie (configurabil din aicoach_profile_cache_size). */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final int CACHE_SIZE = cacheSize();
+
+    /** profilurile citite (userid -> profil sau null daca nu exista), ordonate dupa ultimul acces. */
+    private static final LinkedHashMap<Long, Cached> CACHE = new LinkedHashMap<>(64, 0.75f, true);
+
+    /** creste dupa fiecare scriere; o citire inceputa inainte de o scriere nu mai intra in cache. */
+    private static final AtomicLong WRITES = new AtomicLong();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+    private static final AtomicLong INVALIDATIONS = new AtomicLong();
+
     /**
-     * returneaza profilul unui utilizator dupa userid.
+     * returneaza profilul unui utilizator dupa userid, din cache sau din db.
      *
      * @param userid id-ul utilizatorului.
      * @return userprofile daca exista altfel null.
      * @throws runtimeexception daca apare o eroare sql la interogare.
      */
     public UserProfile get(long userId) {
-        try (Connection c = Db.getConnection();
+        synchronized (CACHE) {
+            Cached hit = CACHE.get(userId);
+            if (hit != null) {
+                HITS.incrementAndGet();
+                return hit.profile();
+            }
+        }
+        MISSES.incrementAndGet();
+        long writes = WRITES.get();
+        UserProfile p = load(userId);
+        synchronized (CACHE) {
+            if (WRITES.get() == writes) {
+                CACHE.put(userId, new Cached(p));
+                Iterator<Map.Entry<Long, Cached>> it = CACHE.entrySet().iterator();
+                while (CACHE.size() > CACHE_SIZE && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    EVICTIONS.incrementAndGet();
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * returneaza un instantaneu al contoarelor cache-ului de profiluri.
+     *
+     * @return statisticile curente.
+     */
+    public static CacheStats cacheStats() {
+        int size;
+        synchronized (CACHE) {
+            size = CACHE.size();
+        }
+        return new CacheStats(CACHE_SIZE, size, HITS.get(), MISSES.get(), EVICTIONS.get(), INVALIDATIONS.get());
+    }
+
+    /** citeste profilul direct din db. */
+    private UserProfile load(long userId) {
+        try (Metrics.Timer t = Metrics.time("dao.profile.load");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
                      "select user_id, age, height_cm, weight_kg, goal, activity_level, gender, updated_at from user_profiles where user_id = ?"
              )) {
             ps.setLong(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) return null;
-                return map(rs);
+                if (!rs.next()) return t.ok(null);
+                return t.ok(map(rs));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Citire profil esuata: " + e.getMessage(), e);
@@ -55,19 +118,23 @@ public final class ProfileDao {
                 "gender=excluded.gender, " +
                 "updated_at=datetime('now')";
 
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, p.userId());
-            if (p.age() == null) ps.setNull(2, Types.INTEGER); else ps.setInt(2, p.age());
-            if (p.heightCm() == null) ps.setNull(3, Types.INTEGER); else ps.setInt(3, p.heightCm());
-            if (p.weightKg() == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, p.weightKg());
-            ps.setString(5, p.goal());
-            ps.setString(6, p.activityLevel());
-            ps.setString(7, p.gender());
-            ps.executeUpdate();
+        try (Metrics.Timer t = Metrics.time("dao.profile.upsert")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setLong(1, p.userId());
+                    if (p.age() == null) ps.setNull(2, Types.INTEGER); else ps.setInt(2, p.age());
+                    if (p.heightCm() == null) ps.setNull(3, Types.INTEGER); else ps.setInt(3, p.heightCm());
+                    if (p.weightKg() == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, p.weightKg());
+                    ps.setString(5, p.goal());
+                    ps.setString(6, p.activityLevel());
+                    ps.setString(7, p.gender());
+                    return ps.executeUpdate();
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Salvare profil esuata: " + e.getMessage(), e);
         }
+        invalidate(p.userId());
     }
 
     /**
@@ -78,14 +145,37 @@ public final class ProfileDao {
      */
     public void updateWeight(long userId, double weightKg) {
         String sql = "update user_profiles set weight_kg = ?, updated_at = datetime('now') where user_id = ?";
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setDouble(1, weightKg);
-            ps.setLong(2, userId);
-            ps.executeUpdate();
+        try (Metrics.Timer t = Metrics.time("dao.profile.updateWeight")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setDouble(1, weightKg);
+                    ps.setLong(2, userId);
+                    return ps.executeUpdate();
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Actualizare greutate profil esuata: " + e.getMessage(), e);
         }
+        invalidate(userId);
+    }
+
+    /** scoate profilul din cache dupa o scriere reusita (updated_at se schimba in db). */
+    private static void invalidate(long userId) {
+        WRITES.incrementAndGet();
+        synchronized (CACHE) {
+            if (CACHE.remove(userId) != null) INVALIDATIONS.incrementAndGet();
+        }
+    }
+
+    /** citeste capacitatea cache-ului din mediu; valorile invalide revin la valoarea implicita. */
+    private static int cacheSize() {
+        String v = System.getenv("AICOACH_PROFILE_CACHE_SIZE");
+        if (v == null || v.isBlank()) return DEFAULT_CACHE_SIZE;
+        try {
+            return Math.max(1, Integer.parseInt(v.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_CACHE_SIZE;
+        }
     }
 
     /**
@@ -110,4 +200,12 @@ public final class ProfileDao {
                 rs.getString("updated_at")
         );
     }
+
+    /** o intrare din cache; profile este null pentru utilizatorii fara profil. */
+    private record Cached(UserProfile profile) {}
+
+    /**
+     * statisticile cache-ului de profiluri: invalidations = intrari scoase dupa upsert/updateweight.
+     */
+    public record CacheStats(int capacity, int size, long hits, long misses, long evictions, long invalidations) {}
 }
@@ -1,20 +1,85 @@
 package aicoach.dao;
 
 import aicoach.db.Db;
+import aicoach.metrics.Metrics;
+import aicoach.model.ProgressDay;
 import aicoach.model.ProgressEntry;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * @file progressdao.java
- * @brief acces la tabela progress (listare inserare stergere).
+ * @brief acces la tabela progress (listare paginata inserare stergere).
  *
- * permite citirea istoricului de progres al unui utilizator adaugarea unei inregistrari noi
- * si stergerea unei inregistrari existente.
+ * permite citirea istoricului de progres al unui utilizator (integral sau pe pagini, in ordinea
+ * tabelului din ui) adaugarea unei inregistrari noi si stergerea unei inregistrari existente.
+ * dupa fiecare modificare reusita sunt anuntati ascultatorii inregistrati (ex. cache-ul de statistici).
  */
 public final class ProgressDao {
 
+    /** cate randuri cere cursorul odata la parcurgerea cu foreach. */
+    private static final int FETCH_SIZE = 256;
+
+    /** ascultatorii anuntati cu userid-ul dupa fiecare insert/delete (comuni tuturor instantelor). */
+    private static final List<LongConsumer> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * inregistreaza un ascultator apelat cu userid-ul dupa fiecare modificare a progresului.
+     * ascultatorul ruleaza pe firul care a facut modificarea, deci trebuie sa fie rapid.
+     *
+     * @param listener ascultatorul.
+     */
+    public static void addChangeListener(LongConsumer listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * returneaza progresul agregat pe zile (ordonat crescator), cu mediile mobile pe 7 si 30 de zile
+     * calculate in sql cu functii fereastra peste zilele calendaristice (nu peste numarul de randuri).
+     *
+     * @param userid id-ul utilizatorului.
+     * @return zilele cu cel putin o inregistrare, de la cea mai veche.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<ProgressDay> dailySeries(long userId) {
+        try (Metrics.Timer t = Metrics.time("dao.progress.dailySeries");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "with d as (" +
+                             "  select date(entry_date) as day, avg(weight_kg) as w," +
+                             "         sum(calories_consumed) as cal, sum(workout_min) as mins" +
+                             "  from progress where user_id = ? and date(entry_date) is not null" +
+                             "  group by date(entry_date)" +
+                             ") " +
+                             "select day, w, cal, mins," +
+                             "  avg(w) over (order by julianday(day) range between 6 preceding and current row) as w7," +
+                             "  avg(w) over (order by julianday(day) range between 29 preceding and current row) as w30 " +
+                             "from d order by day"
+             )) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<ProgressDay> out = new ArrayList<>();
+                while (rs.next()) {
+                    out.add(new ProgressDay(
+                            rs.getString("day"),
+                            rs.getObject("w") == null ? null : rs.getDouble("w"),
+                            rs.getObject("w7") == null ? null : rs.getDouble("w7"),
+                            rs.getObject("w30") == null ? null : rs.getDouble("w30"),
+                            rs.getObject("cal") == null ? null : rs.getInt("cal"),
+                            rs.getObject("mins") == null ? null : rs.getInt("mins")
+                    ));
+                }
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Statistici progres esuate: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * returneaza lista de inregistrari de progres pentru un utilizator ordonate descrescator dupa data
      * (cele mai noi primele).
@@ -24,7 +89,8 @@ public final class ProgressDao {
      * @throws runtimeexception daca apare o eroare sql la interogare.
      */
     public List<ProgressEntry> list(long userId) {
-        try (Connection c = Db.getConnection();
+        try (Metrics.Timer t = Metrics.time("dao.progress.list");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
                      "select id, user_id, entry_date, weight_kg, calories_consumed, workout_min, notes from progress where user_id = ? order by entry_date desc, id desc"
              )) {
@@ -32,7 +98,110 @@ public final class ProgressDao {
             try (ResultSet rs = ps.executeQuery()) {
                 List<ProgressEntry> out = new ArrayList<>();
                 while (rs.next()) out.add(map(rs));
-                return out;
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare progres esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * parcurge toate inregistrarile unui utilizator (cele mai vechi primele) direct din cursor, fara a le strange
+     * intr-o lista. conexiunea de citire ramane imprumutata pana se termina parcurgerea.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param action apelata pentru fiecare inregistrare.
+     * @return numarul de inregistrari parcurse.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public int forEach(long userId, Consumer<ProgressEntry> action) {
+        try (Metrics.Timer t = Metrics.time("dao.progress.forEach");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, entry_date, weight_kg, calories_consumed, workout_min, notes from progress where user_id = ? order by entry_date, id"
+             )) {
+            ps.setLong(1, userId);
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                int n = 0;
+                for (; rs.next(); n++) action.accept(map(rs));
+                t.done(n);
+                return n;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare progres esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returneaza numarul de inregistrari de progres ale unui utilizator.
+     *
+     * @param userid id-ul utilizatorului.
+     * @return numarul de inregistrari.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public int count(long userId) {
+        try (Metrics.Timer t = Metrics.time("dao.progress.count");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement("select count(*) from progress where user_id = ?")) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return t.ok(rs.next() ? rs.getInt(1) : 0);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Numarare progres esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returneaza o pagina din istoricul de progres, in aceeasi ordine ca list (cele mai noi primele).
+     *
+     * @param userid id-ul utilizatorului.
+     * @param offset indexul primului rand din pagina.
+     * @param limit numarul maxim de randuri.
+     * @return randurile paginii (mai putine decat limit la final).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<ProgressEntry> page(long userId, int offset, int limit) {
+        try (Metrics.Timer t = Metrics.time("dao.progress.page");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select id, user_id, entry_date, weight_kg, calories_consumed, workout_min, notes from progress where user_id = ? order by entry_date desc, id desc limit ? offset ?"
+             )) {
+            ps.setLong(1, userId);
+            ps.setInt(2, limit);
+            ps.setInt(3, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<ProgressEntry> out = new ArrayList<>(limit);
+                while (rs.next()) out.add(map(rs));
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare progres esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * returneaza pozitia unei inregistrari in ordinea lui list/page (cate randuri sunt inaintea ei).
+     *
+     * @param userid id-ul utilizatorului.
+     * @param entrydate data inregistrarii.
+     * @param id id-ul inregistrarii.
+     * @return indexul randului (de la 0).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public int position(long userId, String entryDate, long id) {
+        try (Metrics.Timer t = Metrics.time("dao.progress.position");
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(
+                     "select count(*) from progress where user_id = ? and (entry_date > ? or (entry_date = ? and id > ?))"
+             )) {
+            ps.setLong(1, userId);
+            ps.setString(2, entryDate);
+            ps.setString(3, entryDate);
+            ps.setLong(4, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return t.ok(rs.next() ? rs.getInt(1) : 0);
             }
         } catch (SQLException e) {
             throw new RuntimeException("Listare progres esuata: " + e.getMessage(), e);
@@ -47,24 +216,90 @@ public final class ProgressDao {
      * @throws runtimeexception daca apare o eroare sql la inserare.
      */
     public long insert(ProgressEntry e) {
-        try (Connection c = Db.getConnection();
+        long id;
+        try (Metrics.Timer t = Metrics.time("dao.progress.insert")) {
+            id = Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into progress(user_id, entry_date, weight_kg, calories_consumed, workout_min, notes) values(?, ?, ?, ?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS
+                )) {
+                    ps.setLong(1, e.userId());
+                    ps.setString(2, e.entryDate());
+                    if (e.weightKg() == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, e.weightKg());
+                    if (e.caloriesConsumed() == null) ps.setNull(4, Types.INTEGER); else ps.setInt(4, e.caloriesConsumed());
+                    if (e.workoutMin() == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, e.workoutMin());
+                    ps.setString(6, e.notes());
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        rs.next();
+                        return rs.getLong(1);
+                    }
+                }
+            });
+            t.done(1);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Inserare progres esuata: " + ex.getMessage(), ex);
+        }
+        changed(e.userId());
+        return id;
+    }
+
+    /**
+     * insereaza mai multe inregistrari intr-o singura tranzactie, cu batching jdbc (un singur statement
+     * pregatit, o singura trecere prin firul de scriere). daca un rand esueaza nu se salveaza nimic din lot.
+     *
+     * @param entries inregistrarile de salvat (id-ul este ignorat).
+     * @return numarul de randuri inserate.
+     * @throws runtimeexception daca apare o eroare sql la inserare.
+     */
+    public int insertBatch(List<ProgressEntry> entries) {
+        if (entries.isEmpty()) return 0;
+        int n;
+        try (Metrics.Timer t = Metrics.time("dao.progress.insertBatch")) {
+            n = Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into progress(user_id, entry_date, weight_kg, calories_consumed, workout_min, notes) values(?, ?, ?, ?, ?, ?)"
+                )) {
+                    for (ProgressEntry e : entries) {
+                        ps.setLong(1, e.userId());
+                        ps.setString(2, e.entryDate());
+                        if (e.weightKg() == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, e.weightKg());
+                        if (e.caloriesConsumed() == null) ps.setNull(4, Types.INTEGER); else ps.setInt(4, e.caloriesConsumed());
+                        if (e.workoutMin() == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, e.workoutMin());
+                        ps.setString(6, e.notes());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    return entries.size();
+                }
+            });
+            t.done(n);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Inserare progres esuata: " + ex.getMessage(), ex);
+        }
+        entries.stream().mapToLong(ProgressEntry::userId).distinct().forEach(ProgressDao::changed);
+        return n;
+    }
+
+    /**
+     * returneaza greutatea din cea mai recenta inregistrare care are greutate (ordinea lui list).
+     *
+     * @param userid id-ul utilizatorului.
+     * @return greutatea sau null daca nicio inregistrare nu are greutate.
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public Double latestWeight(long userId) {
+        try (Metrics.Timer t = Metrics.time("dao.progress.latestWeight");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
-                     "insert into progress(user_id, entry_date, weight_kg, calories_consumed, workout_min, notes) values(?, ?, ?, ?, ?, ?)",
-                     Statement.RETURN_GENERATED_KEYS
+                     "select weight_kg from progress where user_id = ? and weight_kg is not null order by entry_date desc, id desc limit 1"
              )) {
-            ps.setLong(1, e.userId());
-            ps.setString(2, e.entryDate());
-            if (e.weightKg() == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, e.weightKg());
-            if (e.caloriesConsumed() == null) ps.setNull(4, Types.INTEGER); else ps.setInt(4, e.caloriesConsumed());
-            if (e.workoutMin() == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, e.workoutMin());
-            ps.setString(6, e.notes());
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                rs.next();
-                return rs.getLong(1);
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return t.ok(rs.next() ? rs.getDouble(1) : null);
             }
-        } catch (SQLException ex) {
-            throw new RuntimeException("Inserare progres esuata: " + ex.getMessage(), ex);
+        } catch (SQLException e) {
+            throw new RuntimeException("Listare progres esuata: " + e.getMessage(), e);
         }
     }
 
@@ -76,14 +311,23 @@ public final class ProgressDao {
      * @throws runtimeexception daca apare o eroare sql la stergere.
      */
     public void delete(long id, long userId) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement("delete from progress where id = ? and user_id = ?")) {
-            ps.setLong(1, id);
-            ps.setLong(2, userId);
-            ps.executeUpdate();
+        try (Metrics.Timer t = Metrics.time("dao.progress.delete")) {
+            t.done(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement("delete from progress where id = ? and user_id = ?")) {
+                    ps.setLong(1, id);
+                    ps.setLong(2, userId);
+                    return ps.executeUpdate();
+                }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Stergere progres esuata: " + e.getMessage(), e);
         }
+        changed(userId);
+    }
+
+    /** anunta ascultatorii ca progresul utilizatorului s-a schimbat. */
+    private static void changed(long userId) {
+        for (LongConsumer l : LISTENERS) l.accept(userId);
     }
 
     /**
@@ -0,0 +1,155 @@
+package aicoach.dao;
+
+import aicoach.db.Db;
+import aicoach.metrics.Metrics;
+import aicoach.model.SearchHit;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @file searchdao.java
+ * @brief cautare full-text (fts5) in istoricul de chat si in planurile unui utilizator.
+ *
+ * foloseste tabelele chat_fts si plans_fts create de migrations (sincronizate prin triggere), fiecare cu o
+ * coloana user_id indexata prin care cautarea este restransa la utilizator in interiorul match.
+ * rezultatele sunt ordonate dupa bm25, au un fragment cu termenii marcati si se citesc pe pagini.
+ * textul introdus de utilizator este transformat intr-o interogare fts5 sigura: fiecare cuvant devine
+ * un termen intre ghilimele cu potrivire de prefix, iar toti termenii trebuie sa apara.
+ */
+public final class SearchDao {
+
+    /** marcajul de inceput al unui termen gasit in fragment (caracter de control, nu apare in text). */
+    public static final char MARK_START = '\u0002';
+
+    /** marcajul de sfarsit al unui termen gasit in fragment. */
+    public static final char MARK_END = '\u0003';
+
+    /** numarul aproximativ de cuvinte dintr-un fragment. */
+    private static final int SNIPPET_TOKENS = 16;
+
+    /**
+     * cauta in mesajele de chat ale utilizatorului.
+     *
+     * @param userid id-ul utilizatorului.
+     * @param query textul cautat (cuvinte libere).
+     * @param offset cate rezultate se sar (paginare).
+     * @param limit numarul maxim de rezultate.
+     * @return rezultatele, cele mai relevante primele (gol daca textul nu are cuvinte).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<SearchHit> chat(long userId, String query, int offset, int limit) {
+        return search("dao.search.chat",
+                "select h.id, h.role as title, h.message as text, h.timestamp as created_at," +
+                        "  snippet(chat_fts, 0, ?, ?, '...', " + SNIPPET_TOKENS + ") as snip," +
+                        "  bm25(chat_fts, 1.0, 0.0) as rank " +
+                        "from chat_fts join chat_history h on h.id = chat_fts.rowid " +
+                        "where chat_fts match ? and h.user_id = ? " +
+                        "order by rank, h.id desc limit ? offset ?",
+                "message", userId, query, offset, limit);
+    }
+
+    /**
+     * cauta in planurile utilizatorului (tip si continut; potrivirile in continut conteaza mai mult).
+     *
+     * @param userid id-ul utilizatorului.
+     * @param query textul cautat (cuvinte libere).
+     * @param offset cate rezultate se sar (paginare).
+     * @param limit numarul maxim de rezultate.
+     * @return rezultatele, cele mai relevante primele (gol daca textul nu are cuvinte).
+     * @throws runtimeexception daca apare o eroare sql la interogare.
+     */
+    public List<SearchHit> plans(long userId, String query, int offset, int limit) {
+        return search("dao.search.plans",
+                "select p.id, p.plan_type as title, p.content as text, p.created_at as created_at," +
+                        "  snippet(plans_fts, 1, ?, ?, '...', " + SNIPPET_TOKENS + ") as snip," +
+                        "  bm25(plans_fts, 0.5, 1.0, 0.0) as rank " +
+                        "from plans_fts join plans p on p.id = plans_fts.rowid " +
+                        "where plans_fts match ? and p.user_id = ? " +
+                        "order by rank, p.id desc limit ? offset ?",
+                "{plan_type content}", userId, query, offset, limit);
+    }
+
+    /**
+     * reconstruieste ambele indexuri full-text din tabelele sursa (ex. dupa o restaurare a bazei de date).
+     *
+     * @throws runtimeexception daca apare o eroare sql.
+     */
+    public void rebuild() {
+        try (Metrics.Timer t = Metrics.time("dao.search.rebuild")) {
+            t.done(Db.write(c -> {
+                try (Statement st = c.createStatement()) {
+                    st.execute("insert into chat_fts(chat_fts) values ('rebuild')");
+                    st.execute("insert into plans_fts(plans_fts) values ('rebuild')");
+                    return 0;
+                }
+            }));
+        } catch (SQLException e) {
+            throw new RuntimeException("Reconstruire index cautare esuata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * transforma textul liber intr-o interogare fts5: cuvintele (litere/cifre) devin termeni de prefix
+     * intre ghilimele, legati implicit cu and; operatorii si punctuatia sunt ignorate.
+     *
+     * @param text textul introdus de utilizator.
+     * @return interogarea fts5 sau null daca nu exista niciun cuvant.
+     */
+    public static String ftsQuery(String text) {
+        if (text == null) return null;
+        StringBuilder out = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char ch = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                word.append(ch);
+                continue;
+            }
+            if (word.length() == 0) continue;
+            if (out.length() > 0) out.append(' ');
+            out.append('"').append(word).append("\"*");
+            word.setLength(0);
+        }
+        return out.length() == 0 ? null : out.toString();
+    }
+
+    /**
+     * ruleaza interogarea de cautare comuna pentru chat si planuri (cronometrata ca operatia op). termenii
+     * sunt cautati doar in coloanele date, iar match-ul cere si termenul user_id, ca fts5 sa parcurga numai
+     * randurile utilizatorului (conditia pe user_id din join ramane ca plasa de siguranta).
+     */
+    private List<SearchHit> search(String op, String sql, String columns, long userId, String query,
+                                   int offset, int limit) {
+        String terms = ftsQuery(query);
+        if (terms == null || limit <= 0) return List.of();
+        String match = "user_id : \"" + userId + "\" AND " + columns + " : (" + terms + ")";
+        try (Metrics.Timer t = Metrics.time(op);
+             Connection c = Db.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, String.valueOf(MARK_START));
+            ps.setString(2, String.valueOf(MARK_END));
+            ps.setString(3, match);
+            ps.setLong(4, userId);
+            ps.setInt(5, limit);
+            ps.setInt(6, Math.max(0, offset));
+            try (ResultSet rs = ps.executeQuery()) {
+                List<SearchHit> out = new ArrayList<>();
+                while (rs.next()) {
+                    out.add(new SearchHit(
+                            rs.getLong("id"),
+                            rs.getString("title"),
+                            rs.getString("snip"),
+                            rs.getString("text"),
+                            rs.getString("created_at"),
+                            rs.getDouble("rank")
+                    ));
+                }
+                return t.ok(out);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Cautare esuata: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package aicoach.dao;
 
 import aicoach.db.Db;
+import aicoach.metrics.Metrics;
 import aicoach.model.User;
 
 import java.sql.*;
 
 /**
  * @file userdao.java
- * @brief acces la tabela users (cautare si inserare)
+ * @brief acces la tabela users (cautare inserare si actualizare hash parola)
  *
  * contine operatii de baza pentru utilizatori: cautare dupa email cautare dupa id si inserare user nou.
  * foloseste jdbc cu preparedstatement pentru parametri
@@ -22,18 +23,19 @@ public final class UserDao {
      * @throws runtimeexception daca apare o eroare sql la interogare.
      */
     public User findByEmail(String email) {
-        try (Connection c = Db.getConnection();
+        try (Metrics.Timer t = Metrics.time("dao.users.findByEmail");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
                      "select id, email, password_hash, created_at from users where email = ?")) {
             ps.setString(1, email);
             try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) return null;
-                return new User(
+                if (!rs.next()) return t.ok(null);
+                return t.ok(new User(
                         rs.getLong("id"),
                         rs.getString("email"),
                         rs.getString("password_hash"),
                         rs.getString("created_at")
-                );
+                ));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Cautare email esuata: " + e.getMessage(), e);
@@ -48,18 +50,19 @@ public final class UserDao {
      * @throws runtimeexception daca apare o eroare sql la interogare.
      */
     public User findById(long id) {
-        try (Connection c = Db.getConnection();
+        try (Metrics.Timer t = Metrics.time("dao.users.findById");
+             Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(
                      "select id, email, password_hash, created_at from users where id = ?")) {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) return null;
-                return new User(
+                if (!rs.next()) return t.ok(null);
+                return t.ok(new User(
                         rs.getLong("id"),
                         rs.getString("email"),
                         rs.getString("password_hash"),
                         rs.getString("created_at")
-                );
+                ));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Cautare dupa id esuata: " + e.getMessage(), e);
@@ -75,21 +78,49 @@ public final class UserDao {
      * @throws runtimeexception daca apare o eroare sql la inserare.
      */
     public long insert(String email, String passwordHash) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(
-                     "insert into users(email, password_hash) values(?, ?)",
-                     Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, email);
-            ps.setString(2, passwordHash);
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getLong(1);
+        try (Metrics.Timer t = Metrics.time("dao.users.insert")) {
+            return t.ok(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "insert into users(email, password_hash) values(?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, email);
+                    ps.setString(2, passwordHash);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            return rs.getLong(1);
+                        }
+                        throw new SQLException("Creare utilizator esuata, nu s-a obtinut id.");
+                    }
                 }
-                throw new SQLException("Creare utilizator esuata, nu s-a obtinut id.");
-            }
+            }));
         } catch (SQLException e) {
             throw new RuntimeException("Inserare utilizator esuata: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * inlocuieste hash-ul parolei doar daca in db este inca hash-ul vechi (ex. la migrarea hash-ului dupa login).
+     *
+     * @param id id-ul utilizatorului.
+     * @param oldHash hash-ul citit la autentificare.
+     * @param newHash hash-ul nou.
+     * @return true daca randul a fost actualizat.
+     * @throws runtimeexception daca apare o eroare sql la actualizare.
+     */
+    public boolean updatePasswordHash(long id, String oldHash, String newHash) {
+        try (Metrics.Timer t = Metrics.time("dao.users.updatePasswordHash")) {
+            return t.ok(Db.write(c -> {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "update users set password_hash = ? where id = ? and password_hash = ?")) {
+                    ps.setString(1, newHash);
+                    ps.setLong(2, id);
+                    ps.setString(3, oldHash);
+                    return ps.executeUpdate() == 1;
+                }
+            }));
+        } catch (SQLException e) {
+            throw new RuntimeException("Actualizare parola esuata: " + e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,328 @@
+package aicoach.db;
+
+import org.sqlite.SQLiteConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file connectionpool.java
+ * @brief pool marginit de conexiuni sqlite reutilizabile.
+ *
+ * conexiunile fizice sunt deschise o singura data iar pragma-urile sunt aplicate doar la creare.
+ * pool-ul poate deschide conexiunile doar pentru citire (setul de cititori in modul wal).
+ * dao-urile primesc o conexiune logica (proxy) iar close() o intoarce in pool in loc sa o inchida.
+ * inainte de reutilizare conexiunile stat mai mult timp nefolosite sunt verificate cu un select simplu.
+ * fiecare conexiune fizica are propriul cache de preparedstatement-uri (vezi statementcache).
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /** dupa cat timp de inactivitate o conexiune este verificata inainte de a fi data mai departe. */
+    private static final long VALIDATE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /** cat asteapta un apelant dupa o conexiune libera inainte de a renunta. */
+    private static final long BORROW_TIMEOUT_MS = 30_000;
+
+    /** cate statement-uri compilate pastreaza fiecare conexiune fizica. */
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final String jdbcUrl;
+    private final int maxSize;
+    private final boolean readOnly;
+    private final List<String> pragmas;
+    private final BlockingQueue<Physical> idle;
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong healthCheckFailures = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final StatementCache.Counters statements = new StatementCache.Counters();
+
+    /**
+     * creeaza un pool gol; conexiunile fizice sunt deschise lenes la primul imprumut.
+     *
+     * @param jdbcUrl url-ul jdbc sqlite.
+     * @param maxSize numarul maxim de conexiuni fizice deschise simultan.
+     * @param readOnly true daca conexiunile se deschid doar pentru citire.
+     * @param pragmas comenzile pragma rulate o singura data pe fiecare conexiune fizica noua.
+     * @throws illegalargumentexception daca maxsize este mai mic decat 1.
+     */
+    public ConnectionPool(String jdbcUrl, int maxSize, boolean readOnly, List<String> pragmas) {
+        if (maxSize < 1) throw new IllegalArgumentException("Dimensiune pool invalida: " + maxSize);
+        this.jdbcUrl = jdbcUrl;
+        this.maxSize = maxSize;
+        this.readOnly = readOnly;
+        this.pragmas = List.copyOf(pragmas);
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * imprumuta o conexiune din pool; close() pe conexiunea returnata o intoarce in pool.
+     *
+     * @return conexiune logica pe care au fost aplicate pragma-urile pool-ului.
+     * @throws sqlexception daca pool-ul este inchis, plin peste timeout sau conexiunea nu se poate deschide.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Pool-ul de conexiuni este inchis.");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                waitTimeouts.incrementAndGet();
+                throw new SQLException("Nicio conexiune libera in " + BORROW_TIMEOUT_MS + " ms (pool=" + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Asteptare conexiune intrerupta.", e);
+        }
+        waitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            Physical p = takeHealthy();
+            borrows.incrementAndGet();
+            return p.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * returneaza o captura a contoarelor pool-ului.
+     *
+     * @return statisticile curente.
+     */
+    public Stats stats() {
+        int t = total.get();
+        int i = idle.size();
+        return new Stats(maxSize, t, i, t - i, borrows.get(), created.get(), discarded.get(),
+                healthCheckFailures.get(), waitTimeouts.get(), waitNanos.get(),
+                statements.hits.get(), statements.misses.get(), statements.bypassed.get(), statements.evictions.get());
+    }
+
+    /** inchide toate conexiunile libere; conexiunile imprumutate se inchid cand sunt returnate. */
+    @Override
+    public void close() {
+        closed = true;
+        Physical p;
+        while ((p = idle.poll()) != null) discard(p);
+    }
+
+    /**
+     * ia o conexiune libera sanatoasa sau deschide una noua daca nu exista.
+     *
+     * @return conexiune fizica gata de folosit.
+     * @throws sqlexception daca deschiderea unei conexiuni noi esueaza.
+     */
+    private Physical takeHealthy() throws SQLException {
+        Physical p;
+        while ((p = idle.poll()) != null) {
+            if (p.isHealthy()) return p;
+            healthCheckFailures.incrementAndGet();
+            discard(p);
+        }
+        return open();
+    }
+
+    /**
+     * deschide o conexiune fizica noua si aplica pragma-urile o singura data.
+     *
+     * @return conexiunea fizica noua.
+     * @throws sqlexception daca deschiderea sau pragma esueaza.
+     */
+    private Physical open() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(readOnly);
+        Connection raw = DriverManager.getConnection(jdbcUrl, config.toProperties());
+        try (Statement st = raw.createStatement()) {
+            for (String pragma : pragmas) st.execute(pragma);
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new Physical(raw);
+    }
+
+    /**
+     * primeste inapoi o conexiune fizica dupa ce conexiunea logica a fost inchisa.
+     *
+     * @param p conexiunea fizica returnata.
+     */
+    private void release(Physical p) {
+        try {
+            if (closed || !p.reset() || !idle.offer(p)) discard(p);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * inchide definitiv o conexiune fizica.
+     *
+     * @param p conexiunea fizica de inchis.
+     */
+    private void discard(Physical p) {
+        total.decrementAndGet();
+        discarded.incrementAndGet();
+        p.statements.close();
+        try {
+            p.raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * statisticile pool-ului la un moment dat.
+     *
+     * @param maxSize dimensiunea maxima configurata.
+     * @param total conexiuni fizice deschise.
+     * @param idle conexiuni fizice libere.
+     * @param active conexiuni imprumutate in acest moment.
+     * @param borrows numarul total de imprumuturi.
+     * @param created conexiuni fizice create de la pornire.
+     * @param discarded conexiuni fizice inchise (nesanatoase sau la inchiderea pool-ului).
+     * @param healthCheckFailures conexiuni respinse la verificarea de sanatate.
+     * @param waitTimeouts imprumuturi esuate din lipsa de conexiuni libere.
+     * @param waitNanos timp total petrecut asteptand o conexiune libera.
+     * @param statementHits statement-uri reutilizate din cache.
+     * @param statementMisses statement-uri compilate si adaugate in cache.
+     * @param statementBypassed statement-uri compilate separat pentru ca varianta din cache era deja folosita.
+     * @param statementEvictions statement-uri scoase din cache (lru).
+     */
+    public record Stats(int maxSize, int total, int idle, int active, long borrows, long created,
+                        long discarded, long healthCheckFailures, long waitTimeouts, long waitNanos,
+                        long statementHits, long statementMisses, long statementBypassed, long statementEvictions) {}
+
+    /** conexiune fizica tinuta de pool impreuna cu cache-ul ei de statement-uri si momentul ultimei folosiri. */
+    private final class Physical {
+        private final Connection raw;
+        private final StatementCache statements;
+        private long lastUsed = System.nanoTime();
+
+        private Physical(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(raw, STATEMENT_CACHE_SIZE, ConnectionPool.this.statements);
+        }
+
+        /**
+         * verifica daca conexiunea mai poate fi folosita; dupa o pauza lunga ruleaza un select simplu.
+         *
+         * @return true daca conexiunea este utilizabila.
+         */
+        private boolean isHealthy() {
+            try {
+                if (raw.isClosed()) return false;
+                if (System.nanoTime() - lastUsed < VALIDATE_AFTER_NANOS) return true;
+                try (Statement st = raw.createStatement()) {
+                    st.execute("select 1");
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * aduce conexiunea in starea implicita (autocommit) inainte de a o pune inapoi in pool.
+         *
+         * @return true daca resetarea a reusit.
+         */
+        private boolean reset() {
+            try {
+                if (raw.isClosed()) return false;
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                lastUsed = System.nanoTime();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * creeaza conexiunea logica data apelantului.
+         *
+         * @return proxy peste conexiunea fizica.
+         */
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this)
+            );
+        }
+    }
+
+    /**
+     * handler pentru conexiunea logica: close() intoarce conexiunea fizica in pool o singura data,
+     * iar preparestatement(sql) si preparestatement(sql, autogeneratedkeys) trec prin cache-ul de statement-uri.
+     */
+    private final class Lease implements InvocationHandler {
+        private Physical physical;
+
+        private Lease(Physical physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (physical != null) {
+                        Physical p = physical;
+                        physical = null;
+                        release(p);
+                    }
+                    return null;
+                case "isClosed":
+                    return physical == null || physical.raw.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (physical == null ? "closed" : physical.raw) + "]";
+                default:
+                    break;
+            }
+            if (physical == null) throw new SQLException("Conexiunea a fost deja inchisa.");
+            if (method.getName().equals("prepareStatement")) {
+                if (args.length == 1) return physical.statements.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                if (args.length == 2 && args[1] instanceof Integer keys) return physical.statements.prepare((String) args[0], keys);
+            }
+            try {
+                return method.invoke(physical.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
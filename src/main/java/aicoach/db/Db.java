@@ -3,60 +3,222 @@ package aicoach.db;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 /**
  * @file db.java
  * @brief utilitar static pentru initializarea si accesul la baza de date sqlite.
  *
- * configureaza url-ul jdbc activeaza foreign keys (pragma) pentru fiecare conexiune
- * si ruleaza migrarile pentru a crea/actualiza schema bazei de date.
- * seed-ul este dezactivat (nu se creeaza utilizator default).
+ * baza de date ruleaza in modul wal: citirile folosesc un pool de conexiuni read-only
+ * iar toate scrierile trec printr-un singur fir de scriere (coada), deci citirile nu asteapta dupa scrieri
+ * si scriitorii concurenti nu mai primesc sqlite_busy.
+ * pragma-urile (foreign keys, wal, synchronous) sunt aplicate o singura data pe conexiune fizica.
+ * dimensiunea pool-ului de citire se poate schimba din variabila de mediu aicoach_db_pool_size.
+ * cu {@link #initAsync()} initializarea ruleaza pe un fir de fundal; citirile si scrierile cerute intre timp
+ * asteapta sfarsitul ei.
  */
 public final class Db {
+    /** numarul implicit de conexiuni de citire tinute deschise. */
+    private static final int DEFAULT_POOL_SIZE = 4;
+
+    /** pragma-uri pentru conexiunea de scriere: wal, sync normal (sigur in wal) si checkpoint automat. */
+    private static final List<String> WRITER_PRAGMAS = List.of(
+            "pragma journal_mode = wal",
+            "pragma synchronous = normal",
+            "pragma wal_autocheckpoint = 1000",
+            "pragma journal_size_limit = 67108864",
+            "pragma foreign_keys = on",
+            "pragma busy_timeout = 5000"
+    );
+
+    /** pragma-uri pentru conexiunile de citire. */
+    private static final List<String> READER_PRAGMAS = List.of(
+            "pragma foreign_keys = on",
+            "pragma busy_timeout = 5000"
+    );
+
     private static String jdbcUrl;
+    private static volatile ConnectionPool readers;
+    private static volatile DbWriter writer;
+    private static volatile CompletableFuture<Void> initializing;
     private Db() {}
 
     /**
      * initializeaza baza de date:
-     * seteaza jdbcurl deschide o conexiune activeaza foreign keys
+     * seteaza jdbcurl porneste firul de scriere (care trece baza in modul wal) si pool-ul de citire
      * apoi ruleaza migrarile (creare/actualizare tabele).
      * dupa care adauga un user default daca nu exista
      */
     public static void init() {
-        jdbcUrl = "jdbc:sqlite:" + resolveDbPath().toAbsolutePath();
-        try (Connection c = getConnection()) {
-            try (Statement st = c.createStatement()) {
-                st.execute("pragma foreign_keys = on");
-            }
-            Migrations.apply(c);
-            SeedData.apply(c);
+        init(resolveDbPath());
+    }
+
+    /**
+     * initializeaza baza de date dintr-un fisier dat (ex. bazele generate pentru benchmark-uri);
+     * altfel identic cu {@link #init()}.
+     *
+     * @param file calea fisierului sqlite (creat daca nu exista).
+     */
+    public static void init(Path file) {
+        jdbcUrl = "jdbc:sqlite:" + file.toAbsolutePath();
+        DbWriter w = new DbWriter(new ConnectionPool(jdbcUrl, 1, false, WRITER_PRAGMAS));
+        try {
+            w.submit(c -> {
+                Migrations.apply(c);
+                SeedData.apply(c);
+                return null;
+            });
         } catch (SQLException e) {
+            w.close();
             throw new RuntimeException("Initializare baza de date esuata: " + e.getMessage(), e);
         }
+        // scriitorul devine vizibil doar dupa migrari, ca nicio scriere din alt fir sa nu ajunga inaintea lor
+        writer = w;
+        readers = new ConnectionPool(jdbcUrl, poolSize(), true, READER_PRAGMAS);
+        Runtime.getRuntime().addShutdownHook(new Thread(Db::close, "db-shutdown"));
     }
 
     /**
-     * creeaza si returneaza o conexiune noua catre baza de date sqlite.
-     * activeaza foreign keys pentru conexiunea returnata.
+     * porneste {@link #init()} pe un fir de fundal (pornirea interfetei nu mai asteapta migrarile);
+     * {@link #getConnection()} si {@link #write(SqlWork)} asteapta initializarea daca e inca in curs.
      *
-     * @return o conexiune noua catre baza de date cu foreign keys activate.
-     * @throws sqlexception daca nu se poate deschide conexiunea.
+     * @return viitorul initializarii (esuat cu exceptia din init daca initializarea nu reuseste).
+     */
+    public static CompletableFuture<Void> initAsync() {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        initializing = f;
+        Thread t = new Thread(() -> {
+            try {
+                init();
+                f.complete(null);
+            } catch (Throwable e) {
+                f.completeExceptionally(e);
+            }
+        }, "db-init");
+        t.start();
+        return f;
+    }
+
+    /**
+     * imprumuta o conexiune de citire din pool; close() o intoarce in pool in loc sa o inchida.
+     * conexiunea este read-only: scrierile se fac prin {@link #write(SqlWork)}.
+     *
+     * @return o conexiune read-only catre baza de date.
+     * @throws sqlexception daca baza de date nu este initializata sau nu exista conexiune libera.
      */
     public static Connection getConnection() throws SQLException {
-        Connection c = DriverManager.getConnection(jdbcUrl);
-        try (Statement st = c.createStatement()) {
-            st.execute("pragma foreign_keys = on");
+        ConnectionPool p = readers;
+        if (p == null) {
+            awaitInit();
+            p = readers;
+            if (p == null) throw new SQLException("Baza de date nu este initializata.");
+        }
+        return p.borrow();
+    }
+
+    /**
+     * pune o scriere in coada firului de scriere si asteapta rezultatul.
+     * lucrul ruleaza intr-o tranzactie: commit daca reuseste, rollback daca arunca exceptie.
+     *
+     * @param work operatiile sql de executat pe conexiunea de scriere.
+     * @param <T> tipul rezultatului.
+     * @return rezultatul intors de work (ex. id-ul generat).
+     * @throws sqlexception daca baza de date nu este initializata sau scrierea esueaza.
+     */
+    public static <T> T write(SqlWork<T> work) throws SQLException {
+        DbWriter w = writer;
+        if (w == null) {
+            awaitInit();
+            w = writer;
+            if (w == null) throw new SQLException("Baza de date nu este initializata.");
+        }
+        return w.submit(work);
+    }
+
+    /** asteapta initializarea pornita cu {@link #initAsync()}, daca exista una. */
+    private static void awaitInit() throws SQLException {
+        CompletableFuture<Void> f = initializing;
+        if (f == null) return;
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Asteptare initializare baza de date intrerupta.", e);
+        } catch (ExecutionException e) {
+            throw new SQLException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * returneaza statisticile pool-ului de citire (imprumuturi conexiuni create asteptari, cache de statement-uri).
+     *
+     * @return statisticile curente sau null daca baza de date nu este initializata.
+     */
+    public static ConnectionPool.Stats poolStats() {
+        ConnectionPool p = readers;
+        return p == null ? null : p.stats();
+    }
+
+    /**
+     * returneaza statisticile conexiunii de scriere (inclusiv hit/miss pe cache-ul de statement-uri).
+     *
+     * @return statisticile curente sau null daca baza de date nu este initializata.
+     */
+    public static ConnectionPool.Stats writerStats() {
+        DbWriter w = writer;
+        return w == null ? null : w.stats();
+    }
+
+    /**
+     * returneaza numarul de scrieri care asteapta in coada firului de scriere.
+     *
+     * @return lungimea cozii de scriere (0 daca baza de date nu este initializata).
+     */
+    public static int pendingWrites() {
+        DbWriter w = writer;
+        return w == null ? 0 : w.queued();
+    }
+
+    /**
+     * inchide conexiunile de citire apoi termina coada de scriere si face un checkpoint complet al jurnalului wal
+     * (apelat si la oprirea aplicatiei).
+     */
+    public static void close() {
+        ConnectionPool p = readers;
+        if (p != null) p.close();
+        DbWriter w = writer;
+        if (w != null) w.close();
+    }
+
+    /**
+     * citeste dimensiunea pool-ului de citire din aicoach_db_pool_size iar daca lipseste sau e invalida foloseste valoarea implicita.
+     *
+     * @return numarul maxim de conexiuni fizice.
+     */
+    private static int poolSize() {
+        String v = System.getenv("AICOACH_DB_POOL_SIZE");
+        if (v == null || v.isBlank()) return DEFAULT_POOL_SIZE;
+        try {
+            return Math.max(1, Integer.parseInt(v.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_POOL_SIZE;
         }
-        return c;
     }
 
     /**
      * rezolva calea fisierului db:
-     * incearca in src/main/resources iar daca nu se poate foloseste un fisier local in directorul curent.
+     * foloseste aicoach_db_path daca este setata (ex. rularea de antrenament appcds, pe o baza de aruncat),
+     * altfel incearca in src/main/resources iar daca nu se poate foloseste un fisier local in directorul curent.
      *
      * @return calea catre fisierul bazei de date.
      */
     private static Path resolveDbPath() {
+        String env = System.getenv("AICOACH_DB_PATH");
+        if (env != null && !env.isBlank()) return Paths.get(env.trim());
         Path preferred = Paths.get("src", "main", "resources", "baza de date.db");
         try {
             Files.createDirectories(preferred.getParent());
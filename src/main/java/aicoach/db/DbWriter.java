@@ -0,0 +1,145 @@
+package aicoach.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @file dbwriter.java
+ * @brief firul unic de scriere pentru baza de date sqlite.
+ *
+ * toate scrierile sunt puse intr-o coada si executate pe rand de un singur fir, pe o singura conexiune,
+ * fiecare unitate de lucru intr-o tranzactie proprie. astfel scriitorii nu se mai lovesc de sqlite_busy
+ * iar cititorii (in modul wal) nu asteapta dupa scrieri.
+ */
+final class DbWriter implements AutoCloseable {
+
+    /** numarul maxim de scrieri care pot astepta in coada. */
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final ConnectionPool connection;
+    private final ThreadPoolExecutor executor;
+    private volatile Thread thread;
+
+    /** conexiunea tranzactiei in curs; folosita doar de firul de scriere. */
+    private Connection current;
+
+    /**
+     * porneste firul de scriere peste un pool cu o singura conexiune read-write.
+     *
+     * @param connection pool-ul (de dimensiune 1) din care firul isi ia conexiunea.
+     */
+    DbWriter(ConnectionPool connection) {
+        this.connection = connection;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "db-writer");
+                    t.setDaemon(true);
+                    thread = t;
+                    return t;
+                });
+    }
+
+    /**
+     * pune o unitate de lucru in coada si asteapta rezultatul.
+     * daca apelul vine chiar de pe firul de scriere lucrul ruleaza direct (scrieri imbricate).
+     *
+     * @param work operatiile sql de executat.
+     * @param <T> tipul rezultatului.
+     * @return rezultatul intors de work.
+     * @throws sqlexception daca scrierea esueaza, coada este plina sau asteptarea este intrerupta.
+     */
+    <T> T submit(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == thread) return runInTransaction(work);
+
+        Future<T> f;
+        try {
+            f = executor.submit(() -> runInTransaction(work));
+        } catch (RejectedExecutionException e) {
+            throw new SQLException("Coada de scriere este plina sau oprita.", e);
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Asteptare scriere intrerupta.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException se) throw se;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * returneaza numarul de scrieri care asteapta in coada.
+     *
+     * @return lungimea cozii.
+     */
+    int queued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * returneaza statisticile conexiunii de scriere (inclusiv cache-ul de statement-uri).
+     *
+     * @return statisticile pool-ului de scriere.
+     */
+    ConnectionPool.Stats stats() {
+        return connection.stats();
+    }
+
+    /**
+     * termina scrierile din coada (cel mult cateva secunde), face un checkpoint complet al jurnalului wal
+     * si inchide conexiunea.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (Connection c = connection.borrow();
+             Statement st = c.createStatement()) {
+            st.execute("pragma wal_checkpoint(truncate)");
+        } catch (SQLException ignored) {
+        }
+        connection.close();
+    }
+
+    /**
+     * ruleaza lucrul intr-o tranzactie: commit daca reuseste, rollback altfel.
+     * o scriere imbricata foloseste tranzactia deja deschisa.
+     *
+     * @param work operatiile sql.
+     * @param <T> tipul rezultatului.
+     * @return rezultatul intors de work.
+     * @throws sqlexception daca o comanda sql esueaza.
+     */
+    private <T> T runInTransaction(SqlWork<T> work) throws SQLException {
+        if (current != null) return work.run(current);
+        try (Connection c = connection.borrow()) {
+            c.setAutoCommit(false);
+            current = c;
+            try {
+                T result = work.run(c);
+                c.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                current = null;
+                c.setAutoCommit(true);
+            }
+        }
+    }
+}
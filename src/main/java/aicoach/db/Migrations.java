@@ -1,6 +1,7 @@
 package aicoach.db;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -70,6 +71,7 @@ public final class Migrations {
                             ");"
             );
             st.execute("create index if not exists progress_user_ix on progress(user_id);");
+            st.execute("create index if not exists progress_user_date_ix on progress(user_id, entry_date);");
             st.execute(
                     "create table if not exists chat_history (" +
                             "  id integer primary key autoincrement," +
@@ -80,7 +82,111 @@ public final class Migrations {
                             "  foreign key (user_id) references users(id) on delete cascade" +
                             ");"
             );
-            st.execute("create index if not exists chat_user_ix on chat_history(user_id);");
+            st.execute("drop index if exists chat_user_ix;");
+            st.execute("create index if not exists chat_user_id_ix on chat_history(user_id, id);");
+            st.execute(
+                    "create table if not exists ai_cache (" +
+                            "  cache_key text primary key," +
+                            "  model text," +
+                            "  content text not null," +
+                            "  created_at integer not null" +
+                            ");"
+            );
+            st.execute("create index if not exists ai_cache_created_ix on ai_cache(created_at);");
+            st.execute(
+                    "create table if not exists chat_summaries (" +
+                            "  user_id integer primary key," +
+                            "  summary text not null," +
+                            "  up_to_id integer not null," +
+                            "  updated_at text default (datetime('now'))," +
+                            "  foreign key (user_id) references users(id) on delete cascade" +
+                            ");"
+            );
+            applySearch(st);
         }
     }
+
+    /**
+     * creeaza indexurile full-text (fts5, external content) peste chat_history.message si plans,
+     * plus triggerele care le tin sincronizate la insert/update/delete. fiecare index are si coloana
+     * user_id (indexata ca termen), ca interogarea sa fie restransa la utilizator chiar in match, nu
+     * doar dupa ce fts5 a parcurs potrivirile tuturor utilizatorilor. un index vechi, fara user_id,
+     * este sters si recreat; la (re)creare indexul este reconstruit din randurile existente.
+     *
+     * @param st statement-ul folosit pentru migrari.
+     * @throws sqlexception daca o comanda sql esueaza.
+     */
+    private static void applySearch(Statement st) throws SQLException {
+        boolean chatNew = !hasUserColumn(st, "chat_fts");
+        if (chatNew) dropSearch(st, "chat_fts");
+        st.execute(
+                "create virtual table if not exists chat_fts using fts5(" +
+                        "  message, user_id, content='chat_history', content_rowid='id'," +
+                        "  tokenize='unicode61 remove_diacritics 2'" +
+                        ");"
+        );
+        st.execute(
+                "create trigger if not exists chat_fts_ai after insert on chat_history begin" +
+                        "  insert into chat_fts(rowid, message, user_id) values (new.id, new.message, new.user_id);" +
+                        " end;"
+        );
+        st.execute(
+                "create trigger if not exists chat_fts_ad after delete on chat_history begin" +
+                        "  insert into chat_fts(chat_fts, rowid, message, user_id)" +
+                        "  values ('delete', old.id, old.message, old.user_id);" +
+                        " end;"
+        );
+        st.execute(
+                "create trigger if not exists chat_fts_au after update of message, user_id on chat_history begin" +
+                        "  insert into chat_fts(chat_fts, rowid, message, user_id)" +
+                        "  values ('delete', old.id, old.message, old.user_id);" +
+                        "  insert into chat_fts(rowid, message, user_id) values (new.id, new.message, new.user_id);" +
+                        " end;"
+        );
+        if (chatNew) st.execute("insert into chat_fts(chat_fts) values ('rebuild');");
+
+        boolean plansNew = !hasUserColumn(st, "plans_fts");
+        if (plansNew) dropSearch(st, "plans_fts");
+        st.execute(
+                "create virtual table if not exists plans_fts using fts5(" +
+                        "  plan_type, content, user_id, content='plans', content_rowid='id'," +
+                        "  tokenize='unicode61 remove_diacritics 2'" +
+                        ");"
+        );
+        st.execute(
+                "create trigger if not exists plans_fts_ai after insert on plans begin" +
+                        "  insert into plans_fts(rowid, plan_type, content, user_id)" +
+                        "  values (new.id, new.plan_type, new.content, new.user_id);" +
+                        " end;"
+        );
+        st.execute(
+                "create trigger if not exists plans_fts_ad after delete on plans begin" +
+                        "  insert into plans_fts(plans_fts, rowid, plan_type, content, user_id)" +
+                        "  values ('delete', old.id, old.plan_type, old.content, old.user_id);" +
+                        " end;"
+        );
+        st.execute(
+                "create trigger if not exists plans_fts_au after update of plan_type, content, user_id on plans begin" +
+                        "  insert into plans_fts(plans_fts, rowid, plan_type, content, user_id)" +
+                        "  values ('delete', old.id, old.plan_type, old.content, old.user_id);" +
+                        "  insert into plans_fts(rowid, plan_type, content, user_id)" +
+                        "  values (new.id, new.plan_type, new.content, new.user_id);" +
+                        " end;"
+        );
+        if (plansNew) st.execute("insert into plans_fts(plans_fts) values ('rebuild');");
+    }
+
+    /** verifica daca indexul full-text exista si are deja coloana user_id. */
+    private static boolean hasUserColumn(Statement st, String table) throws SQLException {
+        try (ResultSet rs = st.executeQuery(
+                "select sql from sqlite_master where type = 'table' and name = '" + table + "'")) {
+            return rs.next() && rs.getString(1).contains("user_id");
+        }
+    }
+
+    /** sterge un index full-text si triggerele lui (_ai, _ad, _au), ca sa poata fi recreat cu schema noua. */
+    private static void dropSearch(Statement st, String table) throws SQLException {
+        for (String suffix : new String[]{"_ai", "_ad", "_au"}) st.execute("drop trigger if exists " + table + suffix + ";");
+        st.execute("drop table if exists " + table + ";");
+    }
 }
@@ -0,0 +1,25 @@
+package aicoach.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * @file sqlwork.java
+ * @brief o unitate de lucru jdbc rulata pe conexiunea de scriere.
+ *
+ * primeste conexiunea de scriere si poate intoarce un rezultat (ex. id-ul generat).
+ *
+ * @param <T> tipul rezultatului.
+ */
+@FunctionalInterface
+public interface SqlWork<T> {
+
+    /**
+     * ruleaza operatiile sql pe conexiunea data.
+     *
+     * @param c conexiunea de scriere (in tranzactie).
+     * @return rezultatul operatiei.
+     * @throws sqlexception daca o comanda sql esueaza.
+     */
+    T run(Connection c) throws SQLException;
+}
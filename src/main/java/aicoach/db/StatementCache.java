@@ -0,0 +1,169 @@
+package aicoach.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file statementcache.java
+ * @brief cache lru de preparedstatement-uri compilate pentru o conexiune fizica.
+ *
+ * cheia este textul sql (plus modul de chei generate). dao-ul primeste un proxy iar close() pe el
+ * curata parametrii si lasa statement-ul compilat in cache pentru urmatorul apel cu acelasi sql.
+ * cache-ul traieste cat conexiunea fizica si este inchis odata cu ea.
+ * nu este thread-safe: conexiunea fizica este folosita de un singur apelant la un moment dat.
+ */
+final class StatementCache {
+
+    private final Connection raw;
+    private final int capacity;
+    private final Counters counters;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param raw conexiunea fizica pe care se compileaza statement-urile.
+     * @param capacity numarul maxim de statement-uri tinute in cache.
+     * @param counters contoarele comune ale pool-ului (hit/miss/evictii).
+     */
+    StatementCache(Connection raw, int capacity, Counters counters) {
+        this.raw = raw;
+        this.capacity = capacity;
+        this.counters = counters;
+    }
+
+    /**
+     * intoarce un statement compilat pentru sql din cache sau il compileaza si il adauga.
+     * daca statement-ul din cache este deja folosit (apel imbricat) se compileaza unul separat, necache-uit.
+     *
+     * @param sql textul sql.
+     * @param autoGeneratedKeys statement.return_generated_keys sau statement.no_generated_keys.
+     * @return proxy peste statement-ul compilat; close() il intoarce in cache.
+     * @throws sqlexception daca compilarea esueaza.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        Entry e = entries.get(key);
+        if (e != null && !e.inUse && !e.statement.isClosed()) {
+            counters.hits.incrementAndGet();
+        } else if (e != null && e.inUse) {
+            counters.bypassed.incrementAndGet();
+            return raw.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            counters.misses.incrementAndGet();
+            e = new Entry(key, raw.prepareStatement(sql, autoGeneratedKeys));
+            entries.put(key, e);
+            // marcat folosit inainte de evictie, altfel ar fi inchis chiar el cand toate celelalte sunt imprumutate
+            e.inUse = true;
+            evictOverflow();
+        }
+        e.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Lease(e)
+        );
+    }
+
+    /** inchide toate statement-urile din cache (apelat cand se inchide conexiunea fizica). */
+    void close() {
+        for (Entry e : entries.values()) e.closeQuietly();
+        entries.clear();
+    }
+
+    /** scoate din cache si inchide un statement care nu mai poate fi refolosit (ex. clearparameters a esuat). */
+    private void discard(Entry e) {
+        entries.remove(e.key, e);
+        e.closeQuietly();
+    }
+
+    /** scoate cele mai vechi statement-uri nefolosite pana cand cache-ul revine la capacitate. */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry e = it.next().getValue();
+            if (e.inUse) continue;
+            it.remove();
+            e.closeQuietly();
+            counters.evictions.incrementAndGet();
+        }
+    }
+
+    /** contoarele cache-urilor de statement-uri, comune tuturor conexiunilor unui pool. */
+    static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong bypassed = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    /** un statement compilat si daca este imprumutat in acest moment. */
+    private static final class Entry {
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        private Entry(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * handler pentru statement-ul imprumutat: close() curata parametrii si il elibereaza in cache; daca
+     * curatarea esueaza, statement-ul este scos din cache si inchis, ca sa nu ramana marcat folosit.
+     */
+    private final class Lease implements InvocationHandler {
+        private Entry entry;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (entry != null) {
+                        Entry e = entry;
+                        entry = null;
+                        try {
+                            e.statement.clearParameters();
+                            e.inUse = false;
+                        } catch (SQLException ex) {
+                            discard(e);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return entry == null || entry.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (entry == null) throw new SQLException("Statement-ul a fost deja inchis.");
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package aicoach.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file latencyhistogram.java
+ * @brief histograma de latente log-liniara (in stilul hdrhistogram), fara blocari, cu eroare relativa de ~3%.
+ *
+ * fiecare putere a lui 2 este impartita in 32 de galeti egali, deci o valoare este rotunjita cel mult cu 1/32
+ * din marimea ei; domeniul acopera 1ns - ~18 minute in 1184 de galeti (9kb), valorile mai mari intra in ultimul.
+ * inregistrarea este un increment atomic pe un galet plus doua contoare, deci se poate apela din orice fir
+ * pe fiecare operatie; percentilele se calculeaza doar la citire.
+ */
+public final class LatencyHistogram {
+
+    /** log2 din numarul de galeti per putere a lui 2. */
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    /** cea mai mare putere a lui 2 urmarita (2^40 ns ~ 18 minute). */
+    private static final int MAX_EXP = 40;
+    private static final int BUCKETS = (MAX_EXP - SUB_BITS + 2) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * inregistreaza o durata.
+     *
+     * @param nanos durata in nanosecunde (valorile negative sunt tratate ca 0).
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /** @return numarul de valori inregistrate. */
+    public long count() {
+        return total.sum();
+    }
+
+    /** goleste histograma (inregistrarile concurente pot ramane partial numarate). */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * calculeaza o imagine a distributiei curente.
+     *
+     * @return numarul de valori, media, percentilele 50/90/99/99.9 si maximul (in nanosecunde).
+     */
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            c[i] = counts.get(i);
+            n += c[i];
+        }
+        long mx = max.get();
+        if (n == 0) return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+        return new Snapshot(n, (double) sum.sum() / Math.max(1, total.sum()),
+                percentile(c, n, 0.50, mx), percentile(c, n, 0.90, mx), percentile(c, n, 0.99, mx),
+                percentile(c, n, 0.999, mx), mx);
+    }
+
+    /** valoarea sub care se afla fractia q din inregistrari (limita de sus a galetului, cel mult maximul). */
+    private static long percentile(long[] c, long n, double q, long max) {
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < c.length; i++) {
+            seen += c[i];
+            if (seen >= rank) return Math.min(highest(i), max);
+        }
+        return max;
+    }
+
+    static int index(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        if (exp > MAX_EXP) return BUCKETS - 1;
+        int shift = exp - SUB_BITS;
+        return (shift + 1) * SUB + (int) ((v >>> shift) - SUB);
+    }
+
+    static long highest(int index) {
+        if (index < SUB) return index;
+        int shift = index / SUB - 1;
+        long m = index % SUB + SUB;
+        return ((m + 1) << shift) - 1;
+    }
+
+    /** distributia la un moment dat; toate duratele sunt in nanosecunde. */
+    public record Snapshot(long count, double mean, long p50, long p90, long p99, long p999, long max) {}
+}
@@ -0,0 +1,272 @@
+package aicoach.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file metrics.java
+ * @brief registrul de metrici al aplicatiei: operatii cronometrate (dao, ai) si contoare.
+ *
+ * dao-urile cronometreaza fiecare apel cu {@link #time(String)} (try-with-resources), clientul ai inregistreaza
+ * latenta apelurilor, timpul pana la primul octet si tokenii folositi. operatiile sunt publicate ca mbean-uri
+ * jmx (aicoach:type=Operation,name=...) si, daca aicoach_metrics_log_seconds > 0 (implicit 300), un raport
+ * al operatiilor folosite de la raportul anterior este scris periodic in log (slf4j, logger aicoach.metrics).
+ * inregistrarea jmx si raportul ruleaza pe un fir de fundal pornit de {@link #start()}.
+ */
+public final class Metrics {
+
+    /** intervalul implicit al raportului periodic, in secunde. */
+    public static final int DEFAULT_LOG_SECONDS = 300;
+
+    private static final Map<String, Operation> OPS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    /** numarul de executii al fiecarei operatii la ultimul raport (pentru a raporta doar ce s-a schimbat). */
+    private static final Map<String, Long> REPORTED = new ConcurrentHashMap<>();
+
+    private static volatile MBeanServer jmx;
+    private static ScheduledExecutorService scheduler;
+
+    private Metrics() {}
+
+    /** loggerul metricilor, creat la prima folosire (initializarea slf4j nu intarzie pornirea aplicatiei). */
+    static Logger log() {
+        return Log.LOG;
+    }
+
+    /**
+     * operatia cu numele dat (creata la prima folosire).
+     *
+     * @param name numele operatiei (ex. dao.chat.latest).
+     * @return metricile operatiei.
+     */
+    public static Operation op(String name) {
+        Operation op = OPS.get(name);
+        return op != null ? op : OPS.computeIfAbsent(name, n -> {
+            Operation o = new Operation(n);
+            MBeanServer server = jmx;
+            if (server != null) register(server, o);
+            return o;
+        });
+    }
+
+    /**
+     * porneste cronometrarea unei executii; se foloseste in try-with-resources si se marcheaza reusita
+     * cu {@link Timer#done(long)}. o executie inchisa fara done() (exceptie) este numarata ca eroare.
+     *
+     * @param name numele operatiei.
+     * @return cronometrul executiei.
+     */
+    public static Timer time(String name) {
+        return new Timer(op(name));
+    }
+
+    /**
+     * inregistreaza o durata masurata in alt mod (ex. timpul pana la primul octet).
+     *
+     * @param name numele operatiei.
+     * @param nanos durata.
+     */
+    public static void record(String name, long nanos) {
+        op(name).record(nanos, 0, false);
+    }
+
+    /**
+     * aduna la un contor.
+     *
+     * @param name numele contorului (ex. ai.tokens.prompt).
+     * @param delta valoarea adaugata.
+     */
+    public static void count(String name, long delta) {
+        COUNTERS.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * valorile curente ale contoarelor.
+     *
+     * @return contoarele ordonate dupa nume.
+     */
+    public static Map<String, Long> counters() {
+        Map<String, Long> out = new TreeMap<>();
+        COUNTERS.forEach((k, v) -> out.put(k, v.sum()));
+        return out;
+    }
+
+    /**
+     * operatiile inregistrate pana acum.
+     *
+     * @return operatiile ordonate dupa nume.
+     */
+    public static List<Operation> operations() {
+        List<Operation> out = new ArrayList<>(OPS.values());
+        out.sort((a, b) -> a.name().compareTo(b.name()));
+        return out;
+    }
+
+    /**
+     * raportul text: o linie per operatie (executii, erori, randuri, medie si percentile in ms) si contoarele.
+     *
+     * @param changedOnly true pentru a include doar operatiile executate de la raportul periodic anterior.
+     * @return raportul (gol daca nu exista nimic de raportat).
+     */
+    public static String report(boolean changedOnly) {
+        StringBuilder sb = new StringBuilder();
+        for (Operation op : operations()) {
+            LatencyHistogram.Snapshot s = op.latency();
+            if (changedOnly) {
+                Long before = REPORTED.put(op.name(), s.count());
+                if (before != null && before == s.count()) continue;
+            }
+            if (s.count() == 0) continue;
+            sb.append(String.format(Locale.ROOT,
+                    "%-28s n=%d err=%d rows=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f ms%n",
+                    op.name(), s.count(), op.getErrors(), op.getRows(), s.mean() / 1e6, s.p50() / 1e6,
+                    s.p90() / 1e6, s.p99() / 1e6, s.p999() / 1e6, s.max() / 1e6));
+        }
+        if (sb.length() > 0 || !changedOnly) {
+            counters().forEach((k, v) -> sb.append(k).append('=').append(v).append(System.lineSeparator()));
+        }
+        return sb.toString();
+    }
+
+    /** goleste toate operatiile si contoarele. */
+    public static void reset() {
+        OPS.values().forEach(Operation::reset);
+        COUNTERS.values().forEach(LongAdder::reset);
+        REPORTED.clear();
+    }
+
+    /**
+     * porneste firul de fundal care publica metricile in jmx si scrie raportul periodic.
+     * apelurile repetate nu au efect.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "aicoach-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(Metrics::registerAll);
+        int seconds = logSeconds();
+        if (seconds > 0) {
+            scheduler.scheduleAtFixedRate(Metrics::logReport, seconds, seconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::logReport, "metrics-shutdown"));
+        }
+    }
+
+    private static void logReport() {
+        String r = report(true);
+        if (!r.isEmpty()) log().info("metrici:{}{}", System.lineSeparator(), r.stripTrailing());
+    }
+
+    /** publica registrul si operatiile existente; cele create ulterior se publica la creare. */
+    private static void registerAll() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new Registry(), new ObjectName("aicoach:type=Metrics"));
+            jmx = server;
+            OPS.values().forEach(o -> register(server, o));
+        } catch (Exception e) {
+            log().warn("Publicare metrici jmx esuata: {}", e.toString());
+        }
+    }
+
+    private static void register(MBeanServer server, Operation op) {
+        try {
+            ObjectName name = new ObjectName("aicoach:type=Operation,name=" + ObjectName.quote(op.name()));
+            if (!server.isRegistered(name)) server.registerMBean(op, name);
+        } catch (Exception e) {
+            log().warn("Publicare jmx esuata pentru {}: {}", op.name(), e.toString());
+        }
+    }
+
+    /**
+     * citeste intervalul raportului din aicoach_metrics_log_seconds iar daca lipseste sau e invalid foloseste valoarea implicita.
+     *
+     * @return intervalul in secunde (0 = fara raport periodic).
+     */
+    private static int logSeconds() {
+        String v = System.getenv("AICOACH_METRICS_LOG_SECONDS");
+        if (v == null || v.isBlank()) return DEFAULT_LOG_SECONDS;
+        try {
+            return Math.max(0, Integer.parseInt(v.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LOG_SECONDS;
+        }
+    }
+
+    private static final class Log {
+        static final Logger LOG = LoggerFactory.getLogger("aicoach.metrics");
+    }
+
+    /** cronometrul unei executii (vezi {@link #time(String)}). */
+    public static final class Timer implements AutoCloseable {
+        private final Operation op;
+        private final long start = System.nanoTime();
+        private long rows = -1;
+
+        private Timer(Operation op) {
+            this.op = op;
+        }
+
+        /**
+         * marcheaza executia ca reusita.
+         *
+         * @param rowCount randurile intoarse sau modificate.
+         */
+        public void done(long rowCount) {
+            rows = rowCount;
+        }
+
+        /**
+         * marcheaza executia ca reusita si intoarce rezultatul (randuri: marimea listei, 0 pentru null, altfel 1).
+         *
+         * @param result rezultatul operatiei.
+         * @param <T> tipul rezultatului.
+         * @return acelasi rezultat.
+         */
+        public <T> T ok(T result) {
+            done(result == null ? 0 : result instanceof Collection<?> c ? c.size() : 1);
+            return result;
+        }
+
+        @Override
+        public void close() {
+            op.record(System.nanoTime() - start, Math.max(0, rows), rows < 0);
+        }
+    }
+
+    /** mbean-ul registrului. */
+    private static final class Registry implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            return counters();
+        }
+
+        @Override
+        public String getReport() {
+            return Metrics.report(false);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
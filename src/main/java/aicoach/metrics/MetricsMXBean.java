@@ -0,0 +1,19 @@
+package aicoach.metrics;
+
+import java.util.Map;
+
+/**
+ * @file metricsmxbean.java
+ * @brief vederea jmx a registrului de metrici (aicoach:type=Metrics): contoare si raportul text complet.
+ */
+public interface MetricsMXBean {
+
+    /** contoarele (ex. ai.tokens.prompt, ai.tokens.completion). */
+    Map<String, Long> getCounters();
+
+    /** raportul text al tuturor operatiilor, ca in log. */
+    String getReport();
+
+    /** goleste toate operatiile si contoarele. */
+    void reset();
+}
@@ -0,0 +1,99 @@
+package aicoach.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @file operation.java
+ * @brief metricile unei operatii (ex. dao.chat.latest, ai.chat): histograma de latente, erori si randuri.
+ *
+ * instantele se obtin din {@link Metrics#op(String)} si sunt publicate ca mbean-uri jmx.
+ */
+public final class Operation implements OperationMXBean {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * inregistreaza o executie a operatiei.
+     *
+     * @param nanos durata executiei.
+     * @param rowCount randurile intoarse / modificate (0 daca nu se aplica).
+     * @param error true daca executia a esuat.
+     */
+    public void record(long nanos, long rowCount, boolean error) {
+        latency.record(nanos);
+        if (rowCount > 0) rows.add(rowCount);
+        if (error) errors.increment();
+    }
+
+    /**
+     * distributia latentelor.
+     *
+     * @return imaginea curenta a histogramei (nanosecunde).
+     */
+    public LatencyHistogram.Snapshot latency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.snapshot().mean() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.snapshot().p50() / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latency.snapshot().p90() / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.snapshot().p99() / 1e6;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.snapshot().p999() / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.snapshot().max() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+    }
+}
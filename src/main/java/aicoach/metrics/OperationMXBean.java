@@ -0,0 +1,30 @@
+package aicoach.metrics;
+
+/**
+ * @file operationmxbean.java
+ * @brief vederea jmx a unei operatii masurate (aicoach:type=Operation,name=...); duratele sunt in milisecunde.
+ */
+public interface OperationMXBean {
+
+    long getCount();
+
+    long getErrors();
+
+    /** randuri intoarse sau modificate (pentru apelurile ai: raspunsuri primite). */
+    long getRows();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /** goleste histograma si contoarele operatiei. */
+    void reset();
+}
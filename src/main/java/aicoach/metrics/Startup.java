@@ -0,0 +1,65 @@
+package aicoach.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @file startup.java
+ * @brief masurarea timpului de pornire: momentele fazelor (main, fereastra afisata, baza de date gata) fata de pornirea jvm.
+ *
+ * {@link #mark(String)} retine doar System.nanoTime(), ca sa nu coste nimic pe drumul de pornire; conversia fata de
+ * momentul pornirii jvm (care incarca clasele de management) se face abia in {@link #report()}, care inregistreaza
+ * si fiecare faza ca operatie startup.&lt;faza&gt; in {@link Metrics}. timpul pana la main include pornirea jvm
+ * si incarcarea claselor, deci este cel care scade cu o arhiva appcds.
+ */
+public final class Startup {
+
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+    private static boolean recorded;
+
+    private Startup() {}
+
+    /**
+     * marcheaza sfarsitul unei faze de pornire (apelurile repetate pentru aceeasi faza sunt ignorate).
+     *
+     * @param phase numele fazei (ex. frame).
+     */
+    public static void mark(String phase) {
+        long now = System.nanoTime();
+        synchronized (PHASES) {
+            PHASES.putIfAbsent(phase, now);
+        }
+    }
+
+    /**
+     * rezumatul fazelor marcate, in ordinea marcarii, in ms de la pornirea jvm; la primul apel fazele
+     * sunt inregistrate si in metrici.
+     *
+     * @return ex. "main=180ms frame=420ms db=390ms".
+     */
+    public static String report() {
+        long jvmStart = jvmStartNanos();
+        StringBuilder sb = new StringBuilder();
+        synchronized (PHASES) {
+            PHASES.forEach((k, v) -> {
+                long nanos = Math.max(0, v - jvmStart);
+                if (!recorded) Metrics.record("startup." + k, nanos);
+                sb.append(sb.length() == 0 ? "" : " ").append(k).append('=').append(nanos / 1_000_000).append("ms");
+            });
+            recorded = true;
+        }
+        return sb.toString();
+    }
+
+    /** scrie rezumatul in logul metricilor. */
+    public static void log() {
+        Metrics.log().info("pornire: {}", report());
+    }
+
+    /** momentul pornirii jvm exprimat pe ceasul System.nanoTime(). */
+    private static long jvmStartNanos() {
+        long sinceMs = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        return System.nanoTime() - sinceMs * 1_000_000;
+    }
+}
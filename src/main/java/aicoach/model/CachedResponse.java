@@ -0,0 +1,11 @@
+package aicoach.model;
+/**
+ * @file cachedresponse.java
+ * @brief model de date imutabil pentru un raspuns ai salvat in ai_cache.
+ *
+ * createdAt (ms epoch) este momentul generarii raspunsului, de la care se numara expirarea.
+ */
+public record CachedResponse(
+        String content,
+        long createdAt
+) {}
@@ -0,0 +1,13 @@
+package aicoach.model;
+/**
+ * @file chatsummary.java
+ * @brief model de date imutabil pentru rezumatul conversatiei vechi a unui utilizator.
+ *
+ * rezumatul acopera toate mesajele din chat_history cu id <= upToId; mesajele mai noi se trimit ca ture.
+ */
+public record ChatSummary(
+        long userId,
+        String summary,
+        long upToId,
+        String updatedAt
+) {}
@@ -0,0 +1,16 @@
+package aicoach.model;
+/**
+ * @file progressday.java
+ * @brief model de date imutabil pentru progresul agregat pe o zi, cu mediile mobile ale greutatii.
+ *
+ * o zi poate avea mai multe intrari: greutatea este media lor, caloriile si minutele sunt suma lor.
+ * weight7/weight30 sunt mediile greutatii pe ultimele 7 / 30 de zile calendaristice pana la aceasta zi.
+ */
+public record ProgressDay(
+        String day,
+        Double weightKg,
+        Double weight7,
+        Double weight30,
+        Integer calories,
+        Integer workoutMin
+) {}
@@ -0,0 +1,47 @@
+package aicoach.model;
+
+import java.util.List;
+
+/**
+ * @file progressstats.java
+ * @brief model de date imutabil cu statisticile de progres ale unui utilizator.
+ *
+ * ferestrele de 7 / 30 de zile se termina in ultima zi inregistrata (lastday); dayssincelast spune cat
+ * de veche este acea zi fata de azi. valorile lipsa (nicio greutate in fereastra etc.) sunt null.
+ * weeklydeltakg = media greutatii pe ultimele 7 zile minus media pe cele 7 dinainte. trendkgperweek este
+ * panta dreptei de regresie a greutatii pe ultimele 30 de zile, in kg pe saptamana (negativ = scadere).
+ */
+public record ProgressStats(
+        int days,
+        String firstDay,
+        String lastDay,
+        long daysSinceLast,
+        Double latestWeightKg,
+        Double avgWeight7,
+        Double avgWeight30,
+        Double weeklyDeltaKg,
+        Double trendKgPerWeek,
+        Double avgCalories7,
+        long calories30,
+        int workoutMin7,
+        int workoutMin30,
+        int loggedDays7,
+        int loggedDays30,
+        List<Week> weeks
+) {
+
+    /** statisticile unei saptamani (de luni pana duminica); deltakg este fata de saptamana anterioara cu greutate. */
+    public record Week(
+            String weekStart,
+            Double avgWeightKg,
+            Double deltaKg,
+            long calories,
+            int workoutMin,
+            int loggedDays
+    ) {}
+
+    /** @return true daca nu exista nicio inregistrare de progres. */
+    public boolean isEmpty() {
+        return days == 0;
+    }
+}
@@ -0,0 +1,17 @@
+package aicoach.model;
+
+/**
+ * @file searchhit.java
+ * @brief un rezultat al cautarii full-text (mesaj de chat sau plan).
+ *
+ * snippet contine fragmentul potrivit, cu termenii gasiti intre searchdao.mark_start si searchdao.mark_end;
+ * rank este scorul bm25 (mai mic = mai relevant).
+ */
+public record SearchHit(
+        long id,
+        String title,
+        String snippet,
+        String text,
+        String createdAt,
+        double rank
+) {}
@@ -0,0 +1,339 @@
+package aicoach.server;
+
+import aicoach.ai.AiCallException;
+import aicoach.ai.AiNotConfiguredException;
+import aicoach.service.Async;
+import aicoach.service.OverloadedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @file apiserver.java
+ * @brief server http fara interfata grafica (jdk httpserver) care expune serviciile aplicatiei ca api json.
+ *
+ * fiecare cerere ruleaza pe propriul fir virtual cand jvm-ul il suporta (java 21+, detectat prin reflectie,
+ * proiectul se compileaza pentru 17); altfel pe un pool limitat de fire platforma cu coada. handler-ele sunt
+ * blocante (dao, pbkdf2, asteptarea raspunsului ai), ceea ce pe fire virtuale nu ocupa fire ale sistemului.
+ * numarul de cereri in lucru este limitat; cele peste limita primesc 503 cu retry-after.
+ * autentificarea foloseste token-uri bearer (sessions); rutele sunt definite in endpoints.
+ */
+public final class ApiServer {
+
+    /** portul implicit (suprascris de aicoach_server_port sau de argumentul din linia de comanda). */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** dimensiunea maxima a corpului json al unei cereri. */
+    static final int MAX_BODY = 1 << 20;
+
+    /** firele platforma folosite cand firele virtuale nu sunt disponibile. */
+    private static final int FALLBACK_THREADS = 200;
+
+    /** cereri procesate simultan pe fire virtuale; peste limita se raspunde imediat 503. */
+    private static final int MAX_IN_FLIGHT_VIRTUAL = 1000;
+
+    /** cereri procesate simultan pe fire platforma; firele ramase libere raspund 503 celor peste limita. */
+    private static final int MAX_IN_FLIGHT_PLATFORM = FALLBACK_THREADS - 20;
+
+    static final ObjectMapper OM = new ObjectMapper();
+
+    private static final Logger LOG = LoggerFactory.getLogger("aicoach.server");
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final Semaphore admission;
+    private final Sessions sessions = new Sessions(Duration.ofHours(12));
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * creeaza serverul (nepornit) pe adresa data.
+     *
+     * @param address adresa si portul de ascultare.
+     * @throws ioexception daca portul nu poate fi deschis.
+     */
+    public ApiServer(InetSocketAddress address) throws IOException {
+        this.http = HttpServer.create(address, 1024);
+        this.executor = requestExecutor();
+        this.admission = new Semaphore(executor instanceof ThreadPoolExecutor ? MAX_IN_FLIGHT_PLATFORM : MAX_IN_FLIGHT_VIRTUAL);
+        http.setExecutor(executor);
+        http.createContext("/", this::dispatch);
+        new Endpoints(sessions).register(this);
+    }
+
+    /**
+     * porneste serverul pe portul dat (0 = port liber ales de sistem) si il opreste la inchiderea jvm-ului.
+     *
+     * @param port portul de ascultare.
+     * @return serverul pornit.
+     * @throws ioexception daca portul nu poate fi deschis.
+     */
+    public static ApiServer start(int port) throws IOException {
+        ApiServer s = new ApiServer(new InetSocketAddress(port));
+        s.http.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(s::stop, "api-shutdown"));
+        return s;
+    }
+
+    /**
+     * portul efectiv pe care asculta serverul.
+     *
+     * @return portul local.
+     */
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * descrie executorul cererilor (pentru mesajul de pornire).
+     *
+     * @return "virtual" sau "platform(n)".
+     */
+    public String executorKind() {
+        return executor instanceof ThreadPoolExecutor p ? "platform(" + p.getMaximumPoolSize() + ")" : "virtual";
+    }
+
+    /** opreste serverul: asteapta cel mult 2 secunde cererile in curs, apoi inchide executorul. */
+    public void stop() {
+        http.stop(2);
+        executor.shutdownNow();
+    }
+
+    /** inregistreaza o ruta; path-ul poate contine parametri de forma {nume} (un segment). */
+    void route(String method, String path, boolean auth, Handler handler) {
+        String regex = path.replaceAll("\\{(\\w+)}", "(?<$1>[^/]+)");
+        routes.add(new Route(method, Pattern.compile(regex), auth, handler));
+    }
+
+    /**
+     * trimite cererea la ruta potrivita si transforma rezultatul sau exceptia in raspuns json. cand sunt deja
+     * prea multe cereri in lucru, raspunde imediat 503 cu retry-after in loc sa astepte un loc.
+     */
+    private void dispatch(HttpExchange ex) {
+        if (!admission.tryAcquire()) {
+            try {
+                fail(ex, new OverloadedException("Serverul este ocupat. Reincearca in cateva secunde.",
+                        Duration.ofSeconds(1), null));
+            } finally {
+                ex.close();
+            }
+            return;
+        }
+        try {
+            try {
+                String path = ex.getRequestURI().getPath();
+                boolean pathFound = false;
+                for (Route r : routes) {
+                    Matcher m = r.pattern.matcher(path);
+                    if (!m.matches()) continue;
+                    pathFound = true;
+                    if (!r.method.equals(ex.getRequestMethod())) continue;
+                    Request req = new Request(ex, m, sessions);
+                    if (r.auth) req.requireUser();
+                    Object body = r.handler.handle(req);
+                    if (!req.responded) send(ex, 200, body);
+                    return;
+                }
+                throw new HttpError(pathFound ? 405 : 404, pathFound ? "Metoda nepermisa." : "Ruta inexistenta.");
+            } catch (Throwable t) {
+                fail(ex, Async.unwrap(t));
+            }
+        } finally {
+            ex.close();
+            admission.release();
+        }
+    }
+
+    /**
+     * transforma exceptia unei rute in raspuns json cu statusul potrivit. o ioexceptie aparuta dupa ce
+     * header-ele au fost trimise (ex. clientul a inchis un flux sse) nu mai are raspuns de trimis.
+     */
+    private static void fail(HttpExchange ex, Throwable t) {
+        int status;
+        String msg = t.getMessage();
+        if (t instanceof HttpError h) status = h.status();
+        else if (t instanceof IllegalArgumentException || t instanceof JsonProcessingException) status = 400;
+        else if (t instanceof OverloadedException o) {
+            status = 503;
+            ex.getResponseHeaders().set("Retry-After", Long.toString(Math.max(1, o.retryAfter().toSeconds())));
+        } else if (t instanceof AiNotConfiguredException) status = 503;
+        else if (t instanceof IllegalStateException) status = 409;
+        else if (t instanceof AiCallException) status = 502;
+        else if (t instanceof IOException && ex.getResponseCode() != -1) return;
+        else {
+            status = 500;
+            msg = "Eroare interna.";
+            LOG.error("api {} {} esuat", ex.getRequestMethod(), ex.getRequestURI().getPath(), t);
+        }
+        try {
+            send(ex, status, Map.of("error", msg == null ? "Eroare." : msg));
+        } catch (IOException ignored) {
+            // clientul a inchis conexiunea
+        }
+    }
+
+    /** scrie un raspuns json complet (cu content-length). */
+    static void send(HttpExchange ex, int status, Object body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : OM.writeValueAsBytes(body);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status == 200 && bytes.length == 0 ? 204 : status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * executorul cererilor: un fir virtual per cerere daca exista executors.newvirtualthreadpertaskexecutor
+     * (java 21+), altfel un pool fix de fire platforma cu coada nelimitata. coada nu creste necontrolat pentru ca
+     * dispatch limiteaza cererile in lucru (admission) si le respinge repede pe cele in plus; cererile nu ruleaza
+     * niciodata pe firul care accepta conexiunile.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            Method m = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger n = new AtomicInteger();
+            ThreadPoolExecutor p = new ThreadPoolExecutor(FALLBACK_THREADS, FALLBACK_THREADS, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread t = new Thread(r, "aicoach-api-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            p.allowCoreThreadTimeOut(true);
+            return p;
+        }
+    }
+
+    /** logica unei rute; intoarce obiectul serializat ca json (null = 204). */
+    @FunctionalInterface
+    interface Handler {
+        Object handle(Request req) throws Exception;
+    }
+
+    private record Route(String method, Pattern pattern, boolean auth, Handler handler) {}
+
+    /** o cerere http in curs: parametri din path si query, corp json si utilizatorul sesiunii. */
+    static final class Request {
+        final HttpExchange exchange;
+        private final Matcher path;
+        private final Sessions sessions;
+        private Map<String, String> query;
+        private Long userId;
+        boolean responded;
+
+        private Request(HttpExchange exchange, Matcher path, Sessions sessions) {
+            this.exchange = exchange;
+            this.path = path;
+            this.sessions = sessions;
+        }
+
+        /** token-ul din header-ul authorization: bearer (sau null). */
+        String token() {
+            String h = exchange.getRequestHeaders().getFirst("Authorization");
+            if (h == null || !h.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+            return h.substring(7).trim();
+        }
+
+        /** utilizatorul autentificat; 401 daca token-ul lipseste sau a expirat. */
+        long requireUser() {
+            if (userId == null) {
+                userId = sessions.userId(token());
+                if (userId == null) throw new HttpError(401, "Autentificare necesara.");
+            }
+            return userId;
+        }
+
+        long userId() {
+            return requireUser();
+        }
+
+        /** parametru din path ca numar; 400 daca nu este numeric. */
+        long pathLong(String name) {
+            try {
+                return Long.parseLong(path.group(name));
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Parametru invalid: " + name);
+            }
+        }
+
+        String pathParam(String name) {
+            return path.group(name);
+        }
+
+        String query(String name) {
+            if (query == null) query = parseQuery(exchange.getRequestURI().getRawQuery());
+            return query.get(name);
+        }
+
+        /** parametru numeric din query, limitat la [min, max]; valoarea implicita daca lipseste. */
+        int queryInt(String name, int def, int min, int max) {
+            String v = query(name);
+            if (v == null || v.isBlank()) return def;
+            try {
+                return Math.max(min, Math.min(max, Integer.parseInt(v.trim())));
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Parametru invalid: " + name);
+            }
+        }
+
+        /** corpul cererii ca arbore json (cel mult max_body octeti). */
+        JsonNode json() throws IOException {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] b = in.readNBytes(MAX_BODY + 1);
+                if (b.length > MAX_BODY) throw new HttpError(413, "Corpul cererii este prea mare.");
+                if (b.length == 0) return NullNode.getInstance();
+                try {
+                    return OM.readTree(b);
+                } catch (IOException e) {
+                    throw new HttpError(400, "JSON invalid.");
+                }
+            }
+        }
+
+        /** fluxul corpului cererii (pentru importuri mari, citit fara limita max_body). */
+        InputStream body() {
+            return exchange.getRequestBody();
+        }
+
+        private static Map<String, String> parseQuery(String raw) {
+            Map<String, String> out = new HashMap<>();
+            if (raw == null || raw.isEmpty()) return out;
+            for (String part : raw.split("&")) {
+                int eq = part.indexOf('=');
+                String k = URLDecoder.decode(eq < 0 ? part : part.substring(0, eq), StandardCharsets.UTF_8);
+                String v = eq < 0 ? "" : URLDecoder.decode(part.substring(eq + 1), StandardCharsets.UTF_8);
+                out.putIfAbsent(k, v);
+            }
+            return out;
+        }
+    }
+}
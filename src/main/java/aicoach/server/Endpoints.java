@@ -0,0 +1,289 @@
+package aicoach.server;
+
+import aicoach.ai.AiMessage;
+import aicoach.dao.ChatDao;
+import aicoach.dao.PlanDao;
+import aicoach.dao.ProfileDao;
+import aicoach.dao.ProgressDao;
+import aicoach.dao.SearchDao;
+import aicoach.model.ProgressEntry;
+import aicoach.model.User;
+import aicoach.model.UserProfile;
+import aicoach.service.Async;
+import aicoach.service.AuthService;
+import aicoach.service.ChatService;
+import aicoach.service.CoachService;
+import aicoach.service.ProgressAnalytics;
+import aicoach.service.ProgressImporter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * @file endpoints.java
+ * @brief rutele api-ului json: autentificare, profil, progres, planuri, chat si cautare.
+ *
+ * handler-ele apeleaza direct serviciile si dao-urile folosite si de interfata swing si asteapta blocant
+ * rezultatele asincrone (ruleaza pe firul cererii). serviciile care au nevoie de cheia openrouter sunt create
+ * la prima folosire, deci serverul porneste si fara cheie (doar rutele ai raspund atunci cu eroare).
+ *
+ * rute (toate sub /api, in afara de health si autentificare cer header-ul authorization: bearer token):
+ * get health; post register, login, logout; get/put profile; get/post progress, delete progress/{id},
+ * get progress/stats, post progress/import?format=csv|json; get plans, post plans/{workout|nutrition},
+ * delete plans/{id}; get/post/delete chat (post cu ?stream=true raspunde text/event-stream);
+ * get search/chat si search/plans?q=.
+ */
+final class Endpoints {
+
+    private final Sessions sessions;
+    private final AuthService auth = new AuthService();
+    private final ProfileDao profileDao = new ProfileDao();
+    private final ProgressDao progressDao = new ProgressDao();
+    private final PlanDao planDao = new PlanDao();
+    private final ChatDao chatDao = new ChatDao();
+    private final SearchDao searchDao = new SearchDao();
+    private final ProgressImporter importer = new ProgressImporter(progressDao, profileDao);
+    private final ChatService chat = new ChatService();
+    private final Supplier<CoachService> coach = lazy(CoachService::new);
+
+    Endpoints(Sessions sessions) {
+        this.sessions = sessions;
+    }
+
+    void register(ApiServer s) {
+        s.route("GET", "/api/health", false, r -> Map.of("status", "ok", "sessions", sessions.size()));
+
+        s.route("POST", "/api/register", false, r -> {
+            JsonNode b = r.json();
+            User u = auth.registerAsync(text(b, "email"), text(b, "password")).join();
+            return session(u);
+        });
+        s.route("POST", "/api/login", false, r -> {
+            JsonNode b = r.json();
+            User u = auth.loginAsync(text(b, "email"), text(b, "password")).join();
+            if (u == null) throw new HttpError(401, "Email sau parola gresita.");
+            return session(u);
+        });
+        s.route("POST", "/api/logout", false, r -> {
+            sessions.remove(r.token());
+            return null;
+        });
+
+        s.route("GET", "/api/profile", true, r -> {
+            UserProfile p = profileDao.get(r.userId());
+            if (p == null) throw new HttpError(404, "Profilul nu este completat.");
+            return p;
+        });
+        s.route("PUT", "/api/profile", true, r -> {
+            JsonNode b = r.json();
+            UserProfile p = new UserProfile(r.userId(),
+                    intOrNull(b, "age", 10, 120), intOrNull(b, "heightCm", 100, 250), doubleOrNull(b, "weightKg", 20, 400),
+                    text(b, "goal"), text(b, "activityLevel"), text(b, "gender"), null);
+            profileDao.upsert(p);
+            return profileDao.get(r.userId());
+        });
+
+        s.route("GET", "/api/progress", true, r -> {
+            long userId = r.userId();
+            int offset = r.queryInt("offset", 0, 0, Integer.MAX_VALUE);
+            int limit = r.queryInt("limit", 50, 1, 500);
+            return Map.of("total", progressDao.count(userId), "items", progressDao.page(userId, offset, limit));
+        });
+        s.route("POST", "/api/progress", true, r -> {
+            long userId = r.userId();
+            JsonNode b = r.json();
+            String date = text(b, "entryDate");
+            if (date == null || date.isBlank()) throw new IllegalArgumentException("entryDate lipseste.");
+            ProgressEntry e = new ProgressEntry(0, userId, date.trim(), doubleOrNull(b, "weightKg", 20, 400),
+                    intOrNull(b, "caloriesConsumed", 0, 20000), intOrNull(b, "workoutMin", 0, 1440), text(b, "notes"));
+            long id = progressDao.insert(e);
+            if (e.weightKg() != null) profileDao.updateWeight(userId, e.weightKg());
+            return Map.of("id", id);
+        });
+        s.route("DELETE", "/api/progress/{id}", true, r -> {
+            progressDao.delete(r.pathLong("id"), r.userId());
+            return null;
+        });
+        s.route("GET", "/api/progress/stats", true, r -> ProgressAnalytics.shared().stats(r.userId()));
+        s.route("POST", "/api/progress/import", true, r -> {
+            long userId = r.userId();
+            if ("json".equalsIgnoreCase(r.query("format"))) return importer.importJson(userId, r.body());
+            return importer.importCsv(userId, new InputStreamReader(r.body(), StandardCharsets.UTF_8));
+        });
+
+        s.route("GET", "/api/plans", true, r -> planDao.list(r.userId()));
+        s.route("POST", "/api/plans/{type}", true, r -> {
+            long userId = r.userId();
+            UserProfile p = profileDao.get(userId);
+            if (p == null) throw new IllegalStateException("Mai intai completeaza profilul.");
+            String type = r.pathParam("type");
+            String planType;
+            CompletableFuture<String> f;
+            if (type.equals("workout")) {
+                planType = "WORKOUT";
+                f = coach.get().generateWorkoutPlanAsync(p);
+            } else if (type.equals("nutrition")) {
+                planType = "NUTRITION";
+                f = coach.get().generateNutritionPlanAsync(p);
+            } else {
+                throw new HttpError(404, "Tip de plan necunoscut: " + type);
+            }
+            String content = f.join();
+            long id = planDao.insert(userId, planType, content);
+            return Map.of("id", id, "planType", planType, "content", content);
+        });
+        s.route("DELETE", "/api/plans/{id}", true, r -> {
+            planDao.delete(r.pathLong("id"), r.userId());
+            return null;
+        });
+
+        s.route("GET", "/api/chat", true, r -> {
+            long userId = r.userId();
+            int limit = r.queryInt("limit", 50, 1, 200);
+            String after = r.query("after");
+            if (after == null) return chatDao.latest(userId, limit);
+            try {
+                return chatDao.after(userId, Long.parseLong(after), limit);
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Parametru invalid: after");
+            }
+        });
+        s.route("POST", "/api/chat", true, r -> {
+            long userId = r.userId();
+            String msg = text(r.json(), "message");
+            if (msg == null || msg.isBlank()) throw new IllegalArgumentException("Mesajul este gol.");
+            List<AiMessage> messages = chat.prepare(userId, msg.trim());
+            if (!"true".equals(r.query("stream"))) {
+                String reply = chat.reply(messages, t -> {}).join();
+                chat.saveReply(userId, reply);
+                return Map.of("reply", reply);
+            }
+            streamReply(r, userId, messages);
+            return null;
+        });
+        s.route("DELETE", "/api/chat", true, r -> {
+            chat.clear(r.userId());
+            return null;
+        });
+
+        s.route("GET", "/api/search/chat", true, r ->
+                searchDao.chat(r.userId(), r.query("q"), r.queryInt("offset", 0, 0, 10_000), r.queryInt("limit", 20, 1, 100)));
+        s.route("GET", "/api/search/plans", true, r ->
+                searchDao.plans(r.userId(), r.query("q"), r.queryInt("offset", 0, 0, 10_000), r.queryInt("limit", 20, 1, 100)));
+    }
+
+    /**
+     * trimite raspunsul chat ca server-sent events: un eveniment token per fragment, apoi done cu textul
+     * complet (sau error). daca clientul se deconecteaza, generarea este anulata si cererea se incheie
+     * fara alt eveniment (nu exista un raspuns de trimis).
+     */
+    private void streamReply(ApiServer.Request r, long userId, List<AiMessage> messages) throws Exception {
+        HttpExchange ex = r.exchange;
+        ex.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        ex.getResponseHeaders().set("Cache-Control", "no-cache");
+        ex.sendResponseHeaders(200, 0);
+        r.responded = true;
+        OutputStream os = ex.getResponseBody();
+        Object lock = new Object();
+        AtomicBoolean clientGone = new AtomicBoolean();
+        CompletableFuture<String> f = chat.reply(messages,
+                token -> event(os, lock, clientGone, "token", Map.of("text", token)));
+        try {
+            String reply = f.join();
+            chat.saveReply(userId, reply);
+            event(os, lock, clientGone, "done", Map.of("reply", reply));
+        } catch (RuntimeException e) {
+            f.cancel(true);
+            // clientul s-a deconectat: nu mai are cine sa primeasca evenimentul de eroare
+            if (clientGone.get()) return;
+            try {
+                event(os, lock, clientGone, "error", Map.of("error", String.valueOf(Async.unwrap(e).getMessage())));
+            } catch (UncheckedIOException ignored) {
+                // deconectat intre timp
+            }
+        } finally {
+            try {
+                os.close();
+            } catch (IOException ignored) {
+                // stream deja inchis de client
+            }
+        }
+    }
+
+    /**
+     * scrie un eveniment sse; o eroare de scriere (client deconectat) marcheaza clientgone si opreste
+     * generarea prin exceptie.
+     */
+    private static void event(OutputStream os, Object lock, AtomicBoolean clientGone, String name, Object data) {
+        byte[] json;
+        try {
+            json = ApiServer.OM.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serializare eveniment esuata: " + e.getMessage(), e);
+        }
+        try {
+            synchronized (lock) {
+                os.write(("event: " + name + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+                os.write(json);
+                os.write("\n\n".getBytes(StandardCharsets.UTF_8));
+                os.flush();
+            }
+        } catch (IOException e) {
+            clientGone.set(true);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> session(User u) {
+        return Map.of("token", sessions.create(u.id()), "user", Map.of("id", u.id(), "email", u.email()));
+    }
+
+    private static String text(JsonNode b, String field) {
+        JsonNode v = b.get(field);
+        return v == null || v.isNull() ? null : v.asText();
+    }
+
+    private static Integer intOrNull(JsonNode b, String field, int min, int max) {
+        Double v = doubleOrNull(b, field, min, max);
+        return v == null ? null : (int) Math.round(v);
+    }
+
+    private static Double doubleOrNull(JsonNode b, String field, double min, double max) {
+        JsonNode v = b.get(field);
+        if (v == null || v.isNull()) return null;
+        if (!v.isNumber()) throw new IllegalArgumentException(field + " trebuie sa fie numar.");
+        double d = v.asDouble();
+        if (d < min || d > max) throw new IllegalArgumentException(field + " in afara intervalului.");
+        return d;
+    }
+
+    /** creeaza valoarea la primul apel si o refoloseste; o eroare la creare se repeta la urmatorul apel. */
+    private static <T> Supplier<T> lazy(Supplier<T> factory) {
+        return new Supplier<>() {
+            private volatile T value;
+
+            @Override
+            public T get() {
+                T v = value;
+                if (v == null) {
+                    synchronized (this) {
+                        v = value;
+                        if (v == null) value = v = factory.get();
+                    }
+                }
+                return v;
+            }
+        };
+    }
+}
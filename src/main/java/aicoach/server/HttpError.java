@@ -0,0 +1,23 @@
+package aicoach.server;
+
+/**
+ * @file httperror.java
+ * @brief eroare cu cod http explicit, aruncata de handler-e si transformata in raspuns json de apiserver.
+ */
+final class HttpError extends RuntimeException {
+
+    private final int status;
+
+    /**
+     * @param status codul http al raspunsului.
+     * @param message mesajul trimis clientului.
+     */
+    HttpError(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int status() {
+        return status;
+    }
+}
@@ -0,0 +1,100 @@
+package aicoach.server;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @file sessions.java
+ * @brief sesiunile serverului http: token opac (bearer) -> id utilizator, cu expirare la inactivitate.
+ *
+ * token-urile sunt 32 de octeti aleatori (base64url) tinuti doar in memorie, deci o repornire a serverului
+ * delogheaza toti utilizatorii. fiecare cerere autentificata prelungeste sesiunea; sesiunile expirate sunt
+ * curatate periodic la crearea altora noi.
+ */
+final class Sessions {
+
+    /** dupa cate sesiuni noi se curata cele expirate. */
+    private static final int PURGE_EVERY = 256;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final long idleMillis;
+
+    /**
+     * @param idle cat timp ramane valida o sesiune fara cereri.
+     */
+    Sessions(Duration idle) {
+        this.idleMillis = idle.toMillis();
+    }
+
+    /**
+     * creeaza o sesiune noua pentru utilizator.
+     *
+     * @param userid utilizatorul autentificat.
+     * @return token-ul sesiunii.
+     */
+    String create(long userId) {
+        byte[] b = new byte[32];
+        random.nextBytes(b);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+        sessions.put(token, new Session(userId, System.currentTimeMillis()));
+        if (created.incrementAndGet() % PURGE_EVERY == 0) purge();
+        return token;
+    }
+
+    /**
+     * returneaza utilizatorul sesiunii si ii prelungeste valabilitatea.
+     *
+     * @param token token-ul primit in header-ul authorization.
+     * @return id-ul utilizatorului sau null daca token-ul lipseste, e necunoscut sau a expirat.
+     */
+    Long userId(String token) {
+        if (token == null) return null;
+        long now = System.currentTimeMillis();
+        Session s = sessions.get(token);
+        if (s == null) return null;
+        if (now - s.lastSeen > idleMillis) {
+            sessions.remove(token, s);
+            return null;
+        }
+        s.lastSeen = now;
+        return s.userId;
+    }
+
+    /**
+     * inchide sesiunea.
+     *
+     * @param token token-ul sesiunii.
+     */
+    void remove(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    /** numarul de sesiuni active (inclusiv cele expirate inca necuratate). */
+    int size() {
+        return sessions.size();
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastSeen > idleMillis) it.remove();
+        }
+    }
+
+    private static final class Session {
+        private final long userId;
+        private volatile long lastSeen;
+
+        private Session(long userId, long lastSeen) {
+            this.userId = userId;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package aicoach.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * @file async.java
+ * @brief executor comun pentru operatiile blocante (dao) rulate in afara firului swing.
+ *
+ * orice apel dao poate fi mutat pe executorul de i/o cu db(() -> dao.metoda(...)); rezultatul este un
+ * completablefuture pe care ui-ul il consuma prin callback-uri pe edt. apelurile ai nu trec prin acest
+ * executor: openrouterclient foloseste direct clientul http asincron.
+ */
+public final class Async {
+
+    /** constructor privat: clasa utilitara nu se instantiaza. */
+    private Async() {}
+
+    /** executorul pentru operatii blocante pe baza de date (fire daemon, numar fix). */
+    public static final ExecutorService DB = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            namedDaemon("aicoach-db")
+    );
+
+    /**
+     * ruleaza o operatie blocanta (ex. un apel dao) pe executorul de i/o.
+     *
+     * @param work operatia de rulat.
+     * @param <T> tipul rezultatului.
+     * @return future completat cu rezultatul sau cu exceptia aruncata de operatie.
+     */
+    public static <T> CompletableFuture<T> db(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, DB);
+    }
+
+    /**
+     * ruleaza o operatie blocanta fara rezultat pe executorul de i/o.
+     *
+     * @param work operatia de rulat.
+     * @return future completat cand operatia se termina.
+     */
+    public static CompletableFuture<Void> dbRun(Runnable work) {
+        return CompletableFuture.runAsync(work, DB);
+    }
+
+    /**
+     * scoate cauza reala dintr-o exceptie ambalata de completablefuture.
+     *
+     * @param t exceptia primita intr-un callback.
+     * @return cauza originala (sau t daca nu este ambalata).
+     */
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /**
+     * fabrica de fire daemon cu nume numerotate (ex. aicoach-db-1).
+     *
+     * @param prefix prefixul numelui firelor.
+     * @return fabrica de fire.
+     */
+    static ThreadFactory namedDaemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -2,22 +2,28 @@ package aicoach.service;
 
 import aicoach.dao.UserDao;
 import aicoach.model.User;
-import aicoach.util.Crypto;
 import aicoach.util.Validators;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @file authservice.java
  * @brief logica de autentificare si inregistrare utilizatori.
  *
  * valideaza datele de intrare verifica parola prin compararea hash-ului si foloseste userdao pentru acces la db.
+ * parolele sunt hash-uite cu passwordhasher (pbkdf2 cu sare); variantele asincrone ruleaza accesul la db pe
+ * executorul de i/o si calculul pbkdf2 pe pool-ul limitat al hasher-ului.
  */
 public final class AuthService {
 
     /** dao pentru operatii pe tabela users (cautare/inserare) */
     private final UserDao userDao = new UserDao();
 
+    /** hash-uirea si verificarea parolelor. */
+    private final PasswordHasher hasher = PasswordHasher.shared();
+
     /**
-     * autentifica un utilizator pe baza emailului si parolei.
+     * autentifica un utilizator pe baza emailului si parolei (blocant, pe firul apelant).
      *
      * @param email emailul introdus de utilizator.
      * @param password parola introdusa de utilizator
@@ -25,17 +31,41 @@ public final class AuthService {
      * @throws illegalargumentexception daca emailul/parola sunt invalide
      */
     public User login(String email, String password) {
-        Validators.require(Validators.isEmail(email), "Email invalid.");
-        Validators.require(password != null && password.length() >= 4, "Parola prea scurta.");
+        validateLogin(email, password);
         User u = userDao.findByEmail(email.trim());
-        if (u == null) return null;
-        String hash = Crypto.sha256(password);
-        if (!hash.equals(u.passwordHash())) return null;
+        if (!hasher.verify(password, u == null ? null : u.passwordHash())) return null;
+        rehashIfNeeded(u, password);
         return u;
     }
 
     /**
-     * inregistreaza un utilizator nou si il returneaza din db.
+     * varianta asincrona a lui login: cautarea in db pe executorul de i/o, verificarea pe pool-ul pbkdf2.
+     * daca hash-ul salvat are format vechi sau mai putine iteratii, este refacut in fundal.
+     *
+     * @param email emailul introdus de utilizator.
+     * @param password parola introdusa de utilizator
+     * @return future cu user-ul autentificat sau null daca emailul/parola sunt gresite.
+     */
+    public CompletableFuture<User> loginAsync(String email, String password) {
+        try {
+            validateLogin(email, password);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return Async.db(() -> userDao.findByEmail(email.trim()))
+                .thenCompose(u -> hasher.verifyAsync(password, u == null ? null : u.passwordHash())
+                        .thenApply(ok -> {
+                            if (!ok) return null;
+                            if (hasher.needsRehash(u.passwordHash())) {
+                                hasher.hashAsync(password)
+                                        .thenAcceptAsync(h -> userDao.updatePasswordHash(u.id(), u.passwordHash(), h), Async.DB);
+                            }
+                            return u;
+                        }));
+    }
+
+    /**
+     * inregistreaza un utilizator nou si il returneaza din db (blocant, pe firul apelant).
      *
      * @param email emailul pentru cont.
      * @param password parola pentru cont.
@@ -43,11 +73,49 @@ public final class AuthService {
      * @throws illegalargumentexception daca emailul/parola sunt invalide sau emailul este deja folosit.
      */
     public User register(String email, String password) {
-        Validators.require(Validators.isEmail(email), "Email invalid.");
-        Validators.require(password != null && password.length() >= 4, "Parola prea scurta (minim 4).");
+        validateRegister(email, password);
         String e = email.trim();
         if (userDao.findByEmail(e) != null) throw new IllegalArgumentException("Email deja folosit.");
-        long id = userDao.insert(e, Crypto.sha256(password));
+        long id = userDao.insert(e, hasher.hash(password));
         return userDao.findById(id);
     }
+
+    /**
+     * varianta asincrona a lui register: verificarea emailului si inserarea pe executorul de i/o,
+     * hash-ul parolei pe pool-ul pbkdf2.
+     *
+     * @param email emailul pentru cont.
+     * @param password parola pentru cont.
+     * @return future cu user-ul creat; esueaza cu illegalargumentexception daca datele sunt invalide.
+     */
+    public CompletableFuture<User> registerAsync(String email, String password) {
+        try {
+            validateRegister(email, password);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String e = email.trim();
+        return Async.db(() -> {
+                    if (userDao.findByEmail(e) != null) throw new IllegalArgumentException("Email deja folosit.");
+                    return e;
+                })
+                .thenCompose(x -> hasher.hashAsync(password))
+                .thenApplyAsync(hash -> userDao.findById(userDao.insert(e, hash)), Async.DB);
+    }
+
+    private static void validateLogin(String email, String password) {
+        Validators.require(Validators.isEmail(email), "Email invalid.");
+        Validators.require(password != null && password.length() >= 4, "Parola prea scurta.");
+    }
+
+    private static void validateRegister(String email, String password) {
+        Validators.require(Validators.isEmail(email), "Email invalid.");
+        Validators.require(password != null && password.length() >= 4, "Parola prea scurta (minim 4).");
+    }
+
+    /** reface hash-ul salvat daca are format vechi sau mai putine iteratii decat cele curente. */
+    private void rehashIfNeeded(User u, String password) {
+        if (!hasher.needsRehash(u.passwordHash())) return;
+        userDao.updatePasswordHash(u.id(), u.passwordHash(), hasher.hash(password));
+    }
 }
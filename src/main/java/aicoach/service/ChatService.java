@@ -0,0 +1,310 @@
+package aicoach.service;
+
+import aicoach.ai.AiMessage;
+import aicoach.ai.OpenRouterClient;
+import aicoach.dao.ChatDao;
+import aicoach.dao.ChatSummaryDao;
+import aicoach.dao.ProfileDao;
+import aicoach.dao.ProgressDao;
+import aicoach.model.ChatMessage;
+import aicoach.model.ChatSummary;
+import aicoach.model.ProgressEntry;
+import aicoach.model.UserProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * @file chatservice.java
+ * @brief conversatia cu antrenorul ai: construieste mesajele trimise modelului si salveaza istoricul.
+ *
+ * contextul se trimite ca lista de mesaje cu roluri native, nu ca un singur text: intai prefixul stabil
+ * (instructiunile + profilul + progresul recent, care nu se schimba de la o tura la alta), apoi ultimele
+ * mesaje din istoric ca ture user/assistant si la final mesajul nou. furnizorul poate astfel refolosi
+ * prefixul deja procesat (prompt caching) si doar turele noi mai costa timp si tokeni.
+ *
+ * conversatia se incadreaza intr-un buget de tokeni (contextbuilder). mesajele care ies din fereastra
+ * recenta sunt adaugate incremental intr-un rezumat salvat in chat_summaries: fiecare actualizare trimite
+ * doar rezumatul anterior si mesajele noi, niciodata tot istoricul. un istoric mai vechi decat ultimele
+ * max_history mesaje (ex. la primul rezumat al unei conversatii lungi) este rezumat in pagini, de la cel mai
+ * vechi mesaj nerezumat, inainte de fereastra recenta.
+ */
+public final class ChatService {
+
+    /** model folosit pentru chat. */
+    private static final String MODEL = "openai/gpt-4o-mini";
+    private static final double TEMPERATURE = 0.4;
+    private static final int MAX_TOKENS = 600;
+
+    /** cate mesaje nerezumate se citesc cel mult din istoric (bugetul decide cate se trimit). */
+    private static final int MAX_HISTORY = 100;
+
+    /** cate mesaje mai vechi decat fereastra de max_history intra intr-o actualizare de rezumat. */
+    private static final int BACKLOG_PAGE = 40;
+
+    /** cate intrari de progres intra in prefix. */
+    private static final int PROGRESS_TAKE = 5;
+
+    /** limita de tokeni pentru rezumatul conversatiei. */
+    private static final int SUMMARY_MAX_TOKENS = 300;
+
+    private static final String SUMMARY_SYSTEM = """
+            Rezumi conversatii dintre un utilizator si antrenorul lui de fitness. Scrie in romana fara diacritice.
+            Pastreaza doar ce conteaza pentru raspunsurile viitoare: obiective, preferinte, restrictii, probleme
+            mentionate, sfaturi date si decizii luate. Fara introduceri, maxim 10 puncte scurte.
+            """;
+
+    private static final String SYSTEM = """
+            Esti un antrenor AI de fitness. Raspunde in romana fara diacritice.
+            Fii practic si in siguranta: nu pune diagnostic si nu promite rezultate medicale.
+            Daca lipsesc date importante, pune cel mult 2 intrebari clare.
+            Pentru durere acuta/persistenta sau simptome serioase: recomanda consult medical.
+            Da raspunsuri structurate (liste cu puncte) cand e util.
+            """;
+
+    private final Supplier<OpenRouterClient> ai;
+    private final ChatDao chatDao;
+    private final ProfileDao profileDao;
+    private final ProgressDao progressDao;
+    private final ChatSummaryDao summaryDao;
+    private final ContextBuilder context;
+
+    /** utilizatorii pentru care ruleaza deja o actualizare de rezumat. */
+    private final Set<Long> summarizing = ConcurrentHashMap.newKeySet();
+
+    /** serviciu peste clientul partajat si dao-urile implicite; clientul se obtine abia la primul mesaj. */
+    public ChatService() {
+        this(OpenRouterClient::shared, new ChatDao(), new ProfileDao(), new ProgressDao(), new ChatSummaryDao(),
+                new ContextBuilder(ContextBuilder.defaultBudget()));
+    }
+
+    /**
+     * @param ai furnizeaza clientul ai (apelat la fiecare raspuns, ca o cheie lipsa sa apara ca eroare la trimitere).
+     * @param chatDao dao-ul istoricului de chat.
+     * @param profileDao dao-ul profilului.
+     * @param progressDao dao-ul progresului.
+     * @param summaryDao dao-ul rezumatelor de conversatie.
+     * @param context incadreaza conversatia in bugetul de tokeni.
+     */
+    public ChatService(Supplier<OpenRouterClient> ai, ChatDao chatDao, ProfileDao profileDao, ProgressDao progressDao,
+                       ChatSummaryDao summaryDao, ContextBuilder context) {
+        this.ai = ai;
+        this.chatDao = chatDao;
+        this.profileDao = profileDao;
+        this.progressDao = progressDao;
+        this.summaryDao = summaryDao;
+        this.context = context;
+    }
+
+    /**
+     * verifica profilul, construieste conversatia pentru mesajul nou si salveaza mesajul in istoric.
+     * operatie blocanta (dao), se ruleaza pe executorul de i/o.
+     *
+     * @param userId id-ul utilizatorului.
+     * @param userMsg mesajul nou.
+     * @return mesajele de trimis modelului.
+     * @throws illegalstateexception daca utilizatorul nu are profil.
+     */
+    public List<AiMessage> prepare(long userId, String userMsg) {
+        List<AiMessage> messages = context(userId, userMsg);
+        chatDao.insert(userId, "user", userMsg);
+        return messages;
+    }
+
+    /**
+     * construieste conversatia pentru mesajul nou fara sa o salveze (partea de citire din prepare).
+     * operatie blocanta (dao), se ruleaza pe executorul de i/o.
+     *
+     * @param userId id-ul utilizatorului.
+     * @param userMsg mesajul nou.
+     * @return mesajele de trimis modelului.
+     * @throws illegalstateexception daca utilizatorul nu are profil.
+     */
+    public List<AiMessage> context(long userId, String userMsg) {
+        UserProfile p = profileDao.get(userId);
+        if (p == null) throw new IllegalStateException("Completeaza profilul inainte de chat");
+
+        ChatSummary summary = summaryDao.get(userId);
+        List<ChatMessage> recent = unsummarized(summary, chatDao.latest(userId, MAX_HISTORY));
+        List<ProgressEntry> progress = progressDao.page(userId, 0, PROGRESS_TAKE);
+        return context.build(SYSTEM, userData(p, progress), summary, recent, userMsg);
+    }
+
+    /**
+     * cere raspunsul modelului in streaming.
+     *
+     * @param messages conversatia construita de prepare.
+     * @param onToken primeste fragmentele de text (pe un fir de fundal).
+     * @return future cu raspunsul complet; anularea lui opreste generarea.
+     */
+    public CompletableFuture<String> reply(List<AiMessage> messages, Consumer<String> onToken) {
+        return ai.get().chatStream(MODEL, messages, TEMPERATURE, MAX_TOKENS, onToken);
+    }
+
+    /**
+     * salveaza raspunsul asistentului in istoric (un raspuns gol devine un mesaj de reincercare)
+     * si porneste in fundal actualizarea rezumatului daca s-au adunat destule mesaje vechi.
+     *
+     * @param userId id-ul utilizatorului.
+     * @param reply textul raspunsului.
+     */
+    public void saveReply(long userId, String reply) {
+        if (reply == null || reply.isBlank()) reply = "(incearca din nou)";
+        chatDao.insert(userId, "assistant", reply);
+        summarizeOlder(userId);
+    }
+
+    /**
+     * sterge istoricul de chat si rezumatul lui.
+     *
+     * @param userId id-ul utilizatorului.
+     */
+    public void clear(long userId) {
+        chatDao.clear(userId);
+    }
+
+    /**
+     * adauga in rezumat mesajele iesite din fereastra recenta: un singur apel ai cu rezumatul anterior
+     * si mesajele noi. ruleaza in fundal, cel mult o actualizare odata per utilizator; un esec lasa
+     * rezumatul vechi neschimbat si se reincearca la urmatorul raspuns. daca a fost rezumata o pagina din
+     * istoricul vechi, urmeaza imediat urmatoarea actualizare, pana rezumatul ajunge la fereastra recenta.
+     *
+     * @param userId id-ul utilizatorului.
+     * @return future completat cand actualizarea se termina (sau imediat daca nu e nevoie de ea).
+     */
+    public CompletableFuture<Void> summarizeOlder(long userId) {
+        if (!summarizing.add(userId)) return CompletableFuture.completedFuture(null);
+        return Async.db(() -> nextJob(userId))
+                .thenCompose(job -> {
+                    if (job == null) return CompletableFuture.completedFuture(false);
+                    List<AiMessage> prompt = List.of(AiMessage.system(SUMMARY_SYSTEM), AiMessage.user(job.prompt()));
+                    return ai.get().chatAsync(MODEL, prompt, 0.2, SUMMARY_MAX_TOKENS)
+                            .thenApplyAsync(text -> {
+                                if (text == null || text.isBlank()) return false;
+                                summaryDao.upsert(userId, text.trim(), job.upToId());
+                                return job.backlog();
+                            }, Async.DB);
+                })
+                .handle((more, ex) -> {
+                    summarizing.remove(userId);
+                    return ex == null && more;
+                })
+                .thenCompose(more -> more ? summarizeOlder(userId) : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * alege urmatoarea actualizare de rezumat: intai istoricul vechi care nu a intrat niciodata in fereastra
+     * de max_history, apoi mesajele care ies din fereastra recenta (contextbuilder.tosummarize).
+     *
+     * @param userId id-ul utilizatorului.
+     * @return actualizarea sau null daca nu e nimic de rezumat.
+     */
+    private SummaryJob nextJob(long userId) {
+        ChatSummary summary = summaryDao.get(userId);
+        List<ChatMessage> latest = chatDao.latest(userId, MAX_HISTORY);
+        if (latest.size() == MAX_HISTORY) {
+            long upTo = summary == null ? 0 : summary.upToId();
+            long windowStart = latest.get(0).id();
+            List<ChatMessage> backlog = new ArrayList<>();
+            if (upTo < windowStart) {
+                for (ChatMessage m : chatDao.after(userId, upTo, BACKLOG_PAGE)) {
+                    if (m.id() >= windowStart) break;
+                    backlog.add(m);
+                }
+            }
+            if (!backlog.isEmpty()) return new SummaryJob(summary, backlog, true);
+        }
+        List<ChatMessage> older = context.toSummarize(unsummarized(summary, latest));
+        return older.isEmpty() ? null : new SummaryJob(summary, older, false);
+    }
+
+    /**
+     * mesajele din fereastra recenta care nu sunt inca in rezumat, in ordine cronologica.
+     *
+     * @param summary rezumatul curent (poate fi null).
+     * @param latest ultimele max_history mesaje.
+     * @return mesajele nerezumate.
+     */
+    private static List<ChatMessage> unsummarized(ChatSummary summary, List<ChatMessage> latest) {
+        if (summary == null) return latest;
+        List<ChatMessage> out = new ArrayList<>(latest.size());
+        for (ChatMessage m : latest) if (m.id() > summary.upToId()) out.add(m);
+        return out;
+    }
+
+    /**
+     * o actualizare de rezumat: rezumatul anterior si mesajele de adaugat in el; backlog = mesajele vin din
+     * istoricul de dinaintea ferestrei recente (si poate mai urmeaza o pagina).
+     */
+    private record SummaryJob(ChatSummary previous, List<ChatMessage> older, boolean backlog) {
+
+        long upToId() {
+            return older.get(older.size() - 1).id();
+        }
+
+        String prompt() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("REZUMAT ANTERIOR:\n")
+                    .append(previous == null ? "(niciunul)" : previous.summary())
+                    .append("\n\nMESAJE NOI:\n");
+            for (ChatMessage m : older) {
+                sb.append("[").append(m.role()).append("] ").append(m.message()).append("\n");
+            }
+            sb.append("\nScrie rezumatul actualizat (rezumatul anterior + mesajele noi).");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * blocul cu datele utilizatorului (profil + ultimele intrari de progres) din prefixul conversatiei.
+     *
+     * @param p profilul utilizatorului.
+     * @param progress intrarile de progres (cele mai noi primele).
+     * @return textul blocului.
+     */
+    private static String userData(UserProfile p, List<ProgressEntry> progress) {
+        int progTake = Math.min(PROGRESS_TAKE, progress.size());
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("PROFIL:\n")
+                .append("varsta=").append(p.age()).append(", ")
+                .append("inaltime_cm=").append(p.heightCm()).append(", ")
+                .append("greutate_kg=").append(p.weightKg()).append(", ")
+                .append("obiectiv=").append(toRoValue(p.goal())).append(", ")
+                .append("nivel_activitate=").append(toRoValue(p.activityLevel())).append(", ")
+                .append("gen=").append(toRoValue(p.gender())).append("\n\n");
+
+        sb.append("PROGRES (ultimele ").append(progTake).append("):\n");
+        for (int i = 0; i < progTake; i++) {
+            ProgressEntry x = progress.get(i);
+            sb.append("- ").append(x.entryDate())
+                    .append(": greutate=").append(x.weightKg())
+                    .append(", calorii=").append(x.caloriesConsumed())
+                    .append(", minute_antrenament=").append(x.workoutMin())
+                    .append(", note=").append(x.notes())
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String toRoValue(String value) {
+        if (value == null) return null;
+        return switch (value) {
+            case "weight_loss" -> "slabire";
+            case "bulking" -> "masa";
+            case "maintenance" -> "mentinere";
+            case "low" -> "scazut";
+            case "moderate" -> "moderat";
+            case "high" -> "ridicat";
+            case "male" -> "masculin";
+            case "female" -> "feminin";
+            case "other" -> "altul";
+            default -> value;
+        };
+    }
+}
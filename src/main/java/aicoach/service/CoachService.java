@@ -1,14 +1,23 @@
 package aicoach.service;
 
 import aicoach.ai.OpenRouterClient;
+import aicoach.model.ProgressStats;
 import aicoach.model.UserProfile;
 import aicoach.util.Validators;
 
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * @file coachservice.java
  * @brief serviciu care genereaza planuri de workout si nutritie folosind ai (openrouter).
  *
  * construieste prompt-uri (system + user) pe baza profilului si apeleaza openrouterclient.
+ * raspunsurile sunt pastrate intr-un plancache: aceeasi cerere (acelasi profil, model si parametri)
+ * primeste planul deja generat fara un nou apel remote.
  */
 public final class CoachService {
 
@@ -17,11 +26,36 @@ public final class CoachService {
             System.getenv().getOrDefault("OPENROUTER_MODEL", "openai/gpt-4o-mini");
 
     /** clientul care trimite request-urile http catre openrouter. */
-    private final OpenRouterClient ai = new OpenRouterClient();
+    private final OpenRouterClient ai;
+
+    /** cache-ul raspunsurilor, cheie = hash-ul cererii. */
+    private final PlanCache cache;
+
+    /** statisticile de progres folosite in prompt-ul de nutritie. */
+    private final ProgressAnalytics analytics = ProgressAnalytics.shared();
 
     /** modelul folosit de acest serviciu (mereu default_model in aceasta varianta). */
     private final String model = DEFAULT_MODEL;
 
+    /** limita de tokeni pentru un plan generat. */
+    private static final int MAX_TOKENS = 900;
+
+    /** serviciu peste clientul partajat al aplicatiei (openrouterclient.shared()) si cache-ul partajat. */
+    public CoachService() {
+        this(OpenRouterClient.shared(), PlanCache.shared());
+    }
+
+    /**
+     * serviciu peste un client si un cache date (ex. un client spre un server local de test).
+     *
+     * @param ai clientul folosit pentru apelurile ai.
+     * @param cache cache-ul raspunsurilor.
+     */
+    public CoachService(OpenRouterClient ai, PlanCache cache) {
+        this.ai = ai;
+        this.cache = cache;
+    }
+
     /**
      * genereaza un plan de antrenament (3 zile) folosind ai pe baza profilului.
      *
@@ -30,9 +64,154 @@ public final class CoachService {
      * @throws runtimeexception daca apelul catre openrouter esueaza.
      */
     public String generateWorkoutPlan(UserProfile p) {
+        return generate(workoutPrompt(p), 0.1);
+    }
+
+    /**
+     * varianta asincrona a lui generateworkoutplan: nu blocheaza firul apelant (ex. edt).
+     * anularea future-ului anuleaza si cererea catre openrouter.
+     *
+     * @param p profilul utilizatorului (poate fi null).
+     * @return future cu textul planului de antrenament generat de ai.
+     */
+    public CompletableFuture<String> generateWorkoutPlanAsync(UserProfile p) {
+        return generateAsync(() -> workoutPrompt(p), 0.1, null);
+    }
+
+    /**
+     * genereaza planul de antrenament in streaming: fiecare fragment de text ajunge la ontoken pe masura ce e generat.
+     *
+     * @param p profilul utilizatorului (poate fi null).
+     * @param ontoken primeste fragmentele de text (pe un fir de fundal, nu pe edt).
+     * @return future cu textul complet al planului.
+     */
+    public CompletableFuture<String> generateWorkoutPlanAsync(UserProfile p, Consumer<String> onToken) {
+        return generateAsync(() -> workoutPrompt(p), 0.1, onToken);
+    }
+
+    /**
+     * genereaza un plan de nutritie folosind ai pe baza profilului.
+     *
+     * @param p profilul utilizatorului (poate fi null; atunci se trimit valori "unknown").
+     * @return textul planului de nutritie generat de ai.
+     * @throws runtimeexception daca apelul catre openrouter esueaza.
+     */
+    public String generateNutritionPlan(UserProfile p) {
+        return generate(nutritionPrompt(p, progressStats(p)), 0.35);
+    }
+
+    /**
+     * varianta asincrona a lui generatenutritionplan: nu blocheaza firul apelant (ex. edt).
+     * anularea future-ului anuleaza si cererea catre openrouter.
+     *
+     * @param p profilul utilizatorului (poate fi null).
+     * @return future cu textul planului de nutritie generat de ai.
+     */
+    public CompletableFuture<String> generateNutritionPlanAsync(UserProfile p) {
+        return generateAsync(() -> nutritionPrompt(p, progressStats(p)), 0.35, null);
+    }
+
+    /**
+     * genereaza planul de nutritie in streaming: fiecare fragment de text ajunge la ontoken pe masura ce e generat.
+     *
+     * @param p profilul utilizatorului (poate fi null).
+     * @param ontoken primeste fragmentele de text (pe un fir de fundal, nu pe edt).
+     * @return future cu textul complet al planului.
+     */
+    public CompletableFuture<String> generateNutritionPlanAsync(UserProfile p, Consumer<String> onToken) {
+        return generateAsync(() -> nutritionPrompt(p, progressStats(p)), 0.35, onToken);
+    }
+
+    /**
+     * genereaza sincron un plan: raspunsul din cache daca exista, altfel apel remote salvat apoi in cache.
+     *
+     * @param user mesajul user (cererea cu profilul).
+     * @param temperature temperatura folosita.
+     * @return textul planului.
+     */
+    private String generate(String user, double temperature) {
+        String key = PlanCache.key(model, baseSystemPrompt(), user, temperature, MAX_TOKENS);
+        String hit = cache.get(key);
+        if (hit != null) return hit;
+        String out = ai.chat(model, baseSystemPrompt(), user, temperature, MAX_TOKENS);
+        cache.put(key, model, out);
+        return out;
+    }
+
+    /**
+     * genereaza asincron un plan. construirea cererii si cautarea in cache ruleaza pe executorul de i/o; la hit textul ajunge
+     * intreg la ontoken, la miss se face apelul remote (streaming daca ontoken != null) iar raspunsul se
+     * salveaza in cache in fundal. o eroare a cache-ului nu strica generarea, doar forteaza apelul remote.
+     * anularea future-ului anuleaza si cererea catre openrouter.
+     *
+     * @param userPrompt construieste mesajul user (poate citi din db; ruleaza pe executorul de i/o).
+     * @param temperature temperatura folosita.
+     * @param onToken primeste fragmentele de text sau null pentru un apel fara streaming.
+     * @return future cu textul complet al planului.
+     */
+    private CompletableFuture<String> generateAsync(Supplier<String> userPrompt, double temperature, Consumer<String> onToken) {
         String system = baseSystemPrompt();
+        AtomicReference<CompletableFuture<String>> call = new AtomicReference<>();
+
+        CompletableFuture<String> out = Async.db(() -> {
+                    String user = userPrompt.get();
+                    String key = PlanCache.key(model, system, user, temperature, MAX_TOKENS);
+                    String hit;
+                    try {
+                        hit = cache.get(key);
+                    } catch (RuntimeException e) {
+                        hit = null;
+                    }
+                    return new Lookup(user, key, hit);
+                })
+                .thenCompose(l -> {
+                    if (l.hit() != null) {
+                        if (onToken != null) onToken.accept(l.hit());
+                        return CompletableFuture.completedFuture(l.hit());
+                    }
+                    CompletableFuture<String> c = onToken == null
+                            ? ai.chatAsync(model, system, l.user(), temperature, MAX_TOKENS)
+                            : ai.chatStream(model, system, l.user(), temperature, MAX_TOKENS, onToken);
+                    call.set(c);
+                    return c.thenApply(text -> {
+                        Async.dbRun(() -> cache.put(l.key(), model, text));
+                        return text;
+                    });
+                });
+        out.whenComplete((r, ex) -> {
+            CompletableFuture<String> c = call.get();
+            if (out.isCancelled() && c != null) c.cancel(true);
+        });
+        return out;
+    }
 
-        String user = String.join("\n",
+    /** mesajul user construit, cheia lui in cache si raspunsul gasit (null la miss). */
+    private record Lookup(String user, String key, String hit) {}
+
+    /**
+     * citeste statisticile de progres pentru prompt-ul de nutritie (blocant; null daca nu exista profil
+     * sau citirea esueaza, caz in care prompt-ul nu mentioneaza trendul).
+     *
+     * @param p profilul utilizatorului (poate fi null).
+     * @return statisticile sau null.
+     */
+    private ProgressStats progressStats(UserProfile p) {
+        if (p == null) return null;
+        try {
+            return analytics.stats(p.userId());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * construieste cererea (mesajul user) pentru planul de antrenament.
+     *
+     * @param p profilul utilizatorului (poate fi null).
+     * @return textul cererii.
+     */
+    private static String workoutPrompt(UserProfile p) {
+        return String.join("\n",
                 "Sarcina: creeaza un plan de antrenament.",
                 "Constrangeri:",
                 "- Ofera un plan de antrenament pe 3 zile",
@@ -43,21 +222,17 @@ public final class CoachService {
                 "Profil utilizator:",
                 profileBlock(p)
         );
-
-        return ai.chat(model, system, user, 0.1, 900);
     }
 
     /**
-     * genereaza un plan de nutritie folosind ai pe baza profilului.
+     * construieste cererea (mesajul user) pentru planul de nutritie, cu trendul greutatii daca exista progres.
      *
-     * @param p profilul utilizatorului (poate fi null; atunci se trimit valori "unknown").
-     * @return textul planului de nutritie generat de ai.
-     * @throws runtimeexception daca apelul catre openrouter esueaza.
+     * @param p profilul utilizatorului (poate fi null).
+     * @param stats statisticile de progres (poate fi null).
+     * @return textul cererii.
      */
-    public String generateNutritionPlan(UserProfile p) {
-        String system = baseSystemPrompt();
-
-        String user = String.join("\n",
+    private static String nutritionPrompt(UserProfile p, ProgressStats stats) {
+        return String.join("\n",
                 "Sarcina: creeaza un plan de nutritie.",
                 "Constrangeri:",
                 "- Ofera tinte zilnice (calorii, proteine, grasimi, carbohidrati) si un sablon simplu de mese.",
@@ -66,10 +241,36 @@ public final class CoachService {
                 "- Adauga o regula simpla de ajustare bazata pe trendul saptamanal al greutatii.",
                 "",
                 "Profil utilizator:",
-                profileBlock(p)
+                profileBlock(p),
+                "",
+                "Progres recent:",
+                progressBlock(stats)
+        );
+    }
+
+    /**
+     * construieste blocul cu trendul de progres (medii, delta saptamanala, calorii, antrenament).
+     * valorile sunt rotunjite ca acelasi progres sa dea acelasi text (si aceeasi cheie in cache).
+     *
+     * @param s statisticile (poate fi null).
+     * @return bloc text pe linii separate.
+     */
+    private static String progressBlock(ProgressStats s) {
+        if (s == null || s.isEmpty()) return "- fara inregistrari de progres";
+        return String.join("\n",
+                "- zile inregistrate (ultimele 30): " + s.loggedDays30() + ", ultima: " + s.lastDay(),
+                "- greutate medie 7 zile: " + fmt(s.avgWeight7(), "kg") + ", 30 zile: " + fmt(s.avgWeight30(), "kg"),
+                "- schimbare fata de saptamana anterioara: " + fmt(s.weeklyDeltaKg(), "kg"),
+                "- trend greutate (30 zile): " + fmt(s.trendKgPerWeek(), "kg/saptamana"),
+                "- calorii medii / zi (7 zile): " + (s.avgCalories7() == null ? "necunoscut" : Math.round(s.avgCalories7())),
+                "- minute antrenament (7 zile): " + s.workoutMin7()
         );
+    }
 
-        return ai.chat(model, system, user, 0.35, 900);
+    /** formateaza o valoare cu o zecimala si unitatea ei, sau "necunoscut" daca lipseste. */
+    private static String fmt(Double v, String unit) {
+        if (v == null) return "necunoscut";
+        return String.format(Locale.ROOT, "%.1f %s", v, unit);
     }
 
     /**
@@ -0,0 +1,125 @@
+package aicoach.service;
+
+import aicoach.ai.AiMessage;
+import aicoach.model.ChatMessage;
+import aicoach.model.ChatSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @file contextbuilder.java
+ * @brief incadreaza conversatia trimisa modelului intr-un buget de tokeni.
+ *
+ * ordinea mesajelor ramane cea cu prefix stabil: instructiuni, date utilizator (profil + progres), rezumatul
+ * conversatiei vechi, apoi turele recente si mesajul nou. partile fixe se numara primele; din restul bugetului
+ * se adauga ture de la cea mai noua spre cea mai veche cat timp incap. o tura foarte lunga este taiata la
+ * un sfert din buget, nu la un numar fix de caractere. turele care ies din fereastra recenta sunt date
+ * rezumatului (vezi tosummarize), deci nu se pierd si nici nu se rezuma de doua ori.
+ */
+public final class ContextBuilder {
+
+    /** bugetul implicit de tokeni pentru mesajele trimise (fara raspuns). */
+    public static final int DEFAULT_BUDGET = 3000;
+
+    /** numarul minim de mesaje vechi adunate inainte de a actualiza rezumatul (un apel ai per lot, nu per tura). */
+    public static final int SUMMARY_BATCH = 8;
+
+    private final int budget;
+
+    /**
+     * @param budget bugetul de tokeni pentru mesajele trimise modelului.
+     */
+    public ContextBuilder(int budget) {
+        this.budget = Math.max(256, budget);
+    }
+
+    /**
+     * citeste bugetul din aicoach_chat_context_tokens iar daca lipseste sau e invalid foloseste valoarea implicita.
+     *
+     * @return bugetul de tokeni.
+     */
+    public static int defaultBudget() {
+        String v = System.getenv("AICOACH_CHAT_CONTEXT_TOKENS");
+        if (v == null || v.isBlank()) return DEFAULT_BUDGET;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_BUDGET;
+        }
+    }
+
+    /** @return bugetul de tokeni al acestui builder. */
+    public int budget() {
+        return budget;
+    }
+
+    /**
+     * construieste conversatia in buget.
+     *
+     * @param system instructiunile pentru model.
+     * @param userData blocul cu profilul si progresul.
+     * @param summary rezumatul conversatiei vechi (poate fi null).
+     * @param recent mesajele nerezumate (id > summary.uptoid), in ordine cronologica.
+     * @param userMsg mesajul nou.
+     * @return mesajele de trimis, in ordine.
+     */
+    public List<AiMessage> build(String system, String userData, ChatSummary summary, List<ChatMessage> recent, String userMsg) {
+        List<AiMessage> head = new ArrayList<>(3);
+        head.add(AiMessage.system(system));
+        head.add(AiMessage.system(userData));
+        if (summary != null && !summary.summary().isBlank()) {
+            head.add(AiMessage.system("REZUMATUL CONVERSATIEI ANTERIOARE:\n" + summary.summary()));
+        }
+        AiMessage last = AiMessage.user(userMsg);
+
+        int used = TokenEstimator.estimate(last);
+        for (AiMessage m : head) used += TokenEstimator.estimate(m);
+
+        int turnCap = budget / 4;
+        List<AiMessage> turns = new ArrayList<>();
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            String text = recent.get(i).message();
+            if (text == null || text.isBlank()) continue;
+            int left = budget - used - TokenEstimator.MESSAGE_OVERHEAD;
+            if (left <= 0) break;
+            int cap = Math.min(turnCap, left);
+            if (TokenEstimator.estimate(text) > cap) {
+                // doar cea mai noua tura se taie ca sa incapa; o tura veche prea lunga opreste fereastra
+                if (!turns.isEmpty() && cap < turnCap) break;
+                text = TokenEstimator.truncate(text, cap);
+            }
+            AiMessage m = "assistant".equals(recent.get(i).role()) ? AiMessage.assistant(text) : AiMessage.user(text);
+            used += TokenEstimator.estimate(m);
+            turns.add(m);
+        }
+        Collections.reverse(turns);
+
+        List<AiMessage> out = new ArrayList<>(head.size() + turns.size() + 1);
+        out.addAll(head);
+        out.addAll(turns);
+        out.add(last);
+        return out;
+    }
+
+    /**
+     * alege mesajele vechi care trebuie adaugate in rezumat: tot ce iese din jumatatea de buget pastrata
+     * pentru turele recente. intoarce lista goala pana se aduna cel putin summary_batch mesaje.
+     *
+     * @param unsummarized mesajele nerezumate, in ordine cronologica.
+     * @return mesajele de rezumat (cele mai vechi), in ordine cronologica.
+     */
+    public List<ChatMessage> toSummarize(List<ChatMessage> unsummarized) {
+        int keep = budget / 2;
+        int used = 0;
+        int i = unsummarized.size() - 1;
+        for (; i >= 0; i--) {
+            used += TokenEstimator.MESSAGE_OVERHEAD + TokenEstimator.estimate(unsummarized.get(i).message());
+            if (used > keep) break;
+        }
+        int end = i + 1;
+        if (end < SUMMARY_BATCH) return List.of();
+        return unsummarized.subList(0, end);
+    }
+}
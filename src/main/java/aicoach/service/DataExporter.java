@@ -0,0 +1,284 @@
+package aicoach.service;
+
+import aicoach.dao.ChatDao;
+import aicoach.dao.PlanDao;
+import aicoach.dao.ProfileDao;
+import aicoach.dao.ProgressDao;
+import aicoach.dao.UserDao;
+import aicoach.model.User;
+import aicoach.model.UserProfile;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @file dataexporter.java
+ * @brief exportul tuturor datelor unui utilizator (profil, planuri, progres, chat) in json sau csv.
+ *
+ * randurile sunt citite din cursoarele dao (foreach) si scrise imediat in fisier, cu generatorul de flux
+ * jackson pentru json, deci memoria folosita nu depinde de marimea istoricului. json-ul poate fi comprimat
+ * gzip (.json.gz); csv-ul iese ca arhiva zip cu cate un fisier per tabel (progress.csv are antetul acceptat
+ * de progressimporter). exportul se scrie intr-un fisier temporar mutat peste destinatie doar la final.
+ */
+public final class DataExporter {
+
+    /** marimea bufferului dintre generator si fisier. */
+    private static final int BUFFER = 64 * 1024;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** formatul fisierului de export. */
+    public enum Format { JSON, JSON_GZIP, CSV_ZIP }
+
+    private final UserDao userDao;
+    private final ProfileDao profileDao;
+    private final PlanDao planDao;
+    private final ProgressDao progressDao;
+    private final ChatDao chatDao;
+
+    /** exportator care citeste prin dao-urile implicite. */
+    public DataExporter() {
+        this(new UserDao(), new ProfileDao(), new PlanDao(), new ProgressDao(), new ChatDao());
+    }
+
+    /**
+     * @param userdao utilizatorii (email, data crearii).
+     * @param profiledao profilurile.
+     * @param plandao planurile.
+     * @param progressdao inregistrarile de progres.
+     * @param chatdao istoricul de chat.
+     */
+    public DataExporter(UserDao userDao, ProfileDao profileDao, PlanDao planDao, ProgressDao progressDao, ChatDao chatDao) {
+        this.userDao = userDao;
+        this.profileDao = profileDao;
+        this.planDao = planDao;
+        this.progressDao = progressDao;
+        this.chatDao = chatDao;
+    }
+
+    /**
+     * alege formatul dupa extensia fisierului: .json.gz / .gz, .zip / .csv, altfel json.
+     *
+     * @param file fisierul destinatie.
+     * @return formatul potrivit.
+     */
+    public static Format formatFor(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) return Format.JSON_GZIP;
+        if (name.endsWith(".zip") || name.endsWith(".csv")) return Format.CSV_ZIP;
+        return Format.JSON;
+    }
+
+    /**
+     * exporta datele utilizatorului in fisier (blocant, nu se apeleaza de pe edt).
+     *
+     * @param userid utilizatorul exportat.
+     * @param file fisierul destinatie (suprascris daca exista).
+     * @param format formatul exportului.
+     * @return numarul de randuri exportate pe fiecare tabel.
+     * @throws runtimeexception daca citirea din db sau scrierea fisierului esueaza.
+     */
+    public Result export(long userId, Path file, Format format) {
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(dir, ".export-", ".tmp");
+            Result r;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER)) {
+                r = switch (format) {
+                    case JSON -> writeJson(userId, out);
+                    case JSON_GZIP -> {
+                        try (GZIPOutputStream gz = new GZIPOutputStream(out, BUFFER)) {
+                            yield writeJson(userId, gz);
+                        }
+                    }
+                    case CSV_ZIP -> writeCsvZip(userId, out);
+                };
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return r;
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Export date esuat: " + e.getMessage(), e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // fisierul temporar ramas nu afecteaza exportul
+                }
+            }
+        }
+    }
+
+    /** scrie documentul json: utilizator, profil, apoi tablourile de planuri, progres si chat. */
+    private Result writeJson(long userId, OutputStream os) throws IOException {
+        try (JsonGenerator g = JSON.createGenerator(os, JsonEncoding.UTF8)) {
+            g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            g.useDefaultPrettyPrinter();
+            g.writeStartObject();
+            g.writeStringField("exported_at", Instant.now().toString());
+
+            User u = userDao.findById(userId);
+            g.writeObjectFieldStart("user");
+            g.writeNumberField("id", userId);
+            g.writeStringField("email", u == null ? null : u.email());
+            g.writeStringField("created_at", u == null ? null : u.createdAt());
+            g.writeEndObject();
+
+            UserProfile p = profileDao.get(userId);
+            g.writeFieldName("profile");
+            if (p == null) {
+                g.writeNull();
+            } else {
+                g.writeStartObject();
+                writeNumber(g, "age", p.age());
+                writeNumber(g, "height_cm", p.heightCm());
+                writeNumber(g, "weight_kg", p.weightKg());
+                g.writeStringField("goal", p.goal());
+                g.writeStringField("activity_level", p.activityLevel());
+                g.writeStringField("gender", p.gender());
+                g.writeStringField("updated_at", p.updatedAt());
+                g.writeEndObject();
+            }
+
+            g.writeArrayFieldStart("plans");
+            int plans = planDao.forEach(userId, pl -> io(() -> {
+                g.writeStartObject();
+                g.writeNumberField("id", pl.id());
+                g.writeStringField("plan_type", pl.planType());
+                g.writeStringField("created_at", pl.createdAt());
+                g.writeStringField("content", pl.content());
+                g.writeEndObject();
+            }));
+            g.writeEndArray();
+
+            g.writeArrayFieldStart("progress");
+            int progress = progressDao.forEach(userId, e -> io(() -> {
+                g.writeStartObject();
+                g.writeNumberField("id", e.id());
+                g.writeStringField("entry_date", e.entryDate());
+                writeNumber(g, "weight_kg", e.weightKg());
+                writeNumber(g, "calories_consumed", e.caloriesConsumed());
+                writeNumber(g, "workout_min", e.workoutMin());
+                g.writeStringField("notes", e.notes());
+                g.writeEndObject();
+            }));
+            g.writeEndArray();
+
+            g.writeArrayFieldStart("chat");
+            int chat = chatDao.forEach(userId, m -> io(() -> {
+                g.writeStartObject();
+                g.writeNumberField("id", m.id());
+                g.writeStringField("role", m.role());
+                g.writeStringField("timestamp", m.timestamp());
+                g.writeStringField("message", m.message());
+                g.writeEndObject();
+            }));
+            g.writeEndArray();
+
+            g.writeEndObject();
+            return new Result(plans, progress, chat);
+        }
+    }
+
+    /** scrie arhiva zip cu profile.csv, plans.csv, progress.csv si chat.csv. */
+    private Result writeCsvZip(long userId, OutputStream os) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(os, StandardCharsets.UTF_8)) {
+            Writer w = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER);
+
+            zip.putNextEntry(new ZipEntry("profile.csv"));
+            csv(w, "age", "height_cm", "weight_kg", "goal", "activity_level", "gender", "updated_at");
+            UserProfile p = profileDao.get(userId);
+            if (p != null) csv(w, p.age(), p.heightCm(), p.weightKg(), p.goal(), p.activityLevel(), p.gender(), p.updatedAt());
+            w.flush();
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("plans.csv"));
+            csv(w, "id", "plan_type", "created_at", "content");
+            int plans = planDao.forEach(userId, pl -> io(() -> csv(w, pl.id(), pl.planType(), pl.createdAt(), pl.content())));
+            w.flush();
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("progress.csv"));
+            csv(w, "entry_date", "weight_kg", "calories_consumed", "workout_min", "notes");
+            int progress = progressDao.forEach(userId, e -> io(() ->
+                    csv(w, e.entryDate(), e.weightKg(), e.caloriesConsumed(), e.workoutMin(), e.notes())));
+            w.flush();
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("chat.csv"));
+            csv(w, "id", "role", "timestamp", "message");
+            int chat = chatDao.forEach(userId, m -> io(() -> csv(w, m.id(), m.role(), m.timestamp(), m.message())));
+            w.flush();
+            zip.closeEntry();
+
+            return new Result(plans, progress, chat);
+        }
+    }
+
+    /** scrie un camp numeric sau null. */
+    private static void writeNumber(JsonGenerator g, String name, Number v) throws IOException {
+        if (v == null) g.writeNullField(name);
+        else if (v instanceof Double d) g.writeNumberField(name, d);
+        else g.writeNumberField(name, v.longValue());
+    }
+
+    /** scrie un rand csv (rfc 4180): campurile cu separator, ghilimele sau linii noi sunt puse intre ghilimele. */
+    private static void csv(Writer w, Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) w.write(',');
+            Object c = cells[i];
+            if (c == null) continue;
+            String s = c.toString();
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+                w.write(s);
+                continue;
+            }
+            w.write('"');
+            w.write(s.replace("\"", "\"\""));
+            w.write('"');
+        }
+        w.write("\r\n");
+    }
+
+    /** ruleaza o scriere din callback-ul dao, transformand ioexception in uncheckedioexception. */
+    private static void io(IoWork work) {
+        try {
+            work.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** o scriere care poate arunca ioexception. */
+    @FunctionalInterface
+    private interface IoWork {
+        void run() throws IOException;
+    }
+
+    /**
+     * numarul de randuri exportate.
+     *
+     * @param plans planuri.
+     * @param progress inregistrari de progres.
+     * @param chat mesaje de chat.
+     */
+    public record Result(int plans, int progress, int chat) {}
+}
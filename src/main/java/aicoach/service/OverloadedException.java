@@ -0,0 +1,30 @@
+package aicoach.service;
+
+import java.time.Duration;
+
+/**
+ * @file overloadedexception.java
+ * @brief cerere refuzata pentru ca o resursa limitata (ex. pool-ul pbkdf2) este plina; se poate reincerca.
+ *
+ * extinde illegalstateexception ca apelantii existenti sa o trateze ca pana acum, dar serverul api o
+ * transforma in 503 cu retry-after in loc de 409.
+ */
+public final class OverloadedException extends IllegalStateException {
+
+    private final Duration retryAfter;
+
+    /**
+     * @param message mesajul pentru utilizator.
+     * @param retryAfter dupa cat timp merita reincercat.
+     * @param cause refuzul original (ex. rejectedexecutionexception).
+     */
+    public OverloadedException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /** @return dupa cat timp merita reincercat. */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
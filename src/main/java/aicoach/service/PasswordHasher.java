@@ -0,0 +1,233 @@
+package aicoach.service;
+
+import aicoach.util.Crypto;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @file passwordhasher.java
+ * @brief hash-uire de parole cu pbkdf2 (hmac-sha256) si sare aleatoare, pe un pool de fire limitat.
+ *
+ * formatul salvat in users.password_hash este "pbkdf2-sha256$iteratii$sare$hash" (sare si hash in base64),
+ * deci fiecare hash isi poarta parametrii: cand numarul de iteratii creste, hash-urile vechi raman valide
+ * si sunt refacute transparent la urmatoarea autentificare (needsrehash). hash-urile sha-256 simple din
+ * versiunile vechi (64 caractere hex) sunt inca acceptate, tot pentru migrare la login.
+ *
+ * pbkdf2 este intentionat lent, asa ca ruleaza pe un executor separat cu fire si coada limitate: un val de
+ * autentificari ocupa cel mult jumatate din procesoare si, cand coada e plina, cererile noi sunt refuzate
+ * imediat in loc sa intarzie restul aplicatiei.
+ */
+public final class PasswordHasher {
+
+    /** numarul implicit de iteratii (recomandarea owasp pentru pbkdf2-hmac-sha256 la data scrierii). */
+    public static final int DEFAULT_ITERATIONS = 310_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    /** cate hash-uiri pot astepta in coada pool-ului. */
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** pool-ul comun pentru calculele pbkdf2 (fire daemon aicoach-kdf-n). */
+    private static final ThreadPoolExecutor POOL = newPool();
+
+    private static final PasswordHasher SHARED = new PasswordHasher(iterationsFromEnv());
+
+    private final int iterations;
+
+    /**
+     * hash fals verificat cand emailul nu exista, ca timpul de raspuns sa nu tradeze conturile existente.
+     * se calculeaza la prima verificare fara cont (pe firul pbkdf2), nu la crearea hasher-ului: altfel
+     * incarcarea clasei ar face o derivare completa pe edt inainte de afisarea ferestrei.
+     */
+    private volatile String dummyHash;
+
+    /**
+     * @param iterations numarul de iteratii pentru hash-urile noi.
+     */
+    public PasswordHasher(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    /**
+     * returneaza hasher-ul aplicatiei (iteratii din aicoach_pbkdf2_iterations sau valoarea implicita).
+     *
+     * @return hasher-ul partajat.
+     */
+    public static PasswordHasher shared() {
+        return SHARED;
+    }
+
+    /** @return numarul de iteratii folosit pentru hash-urile noi. */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * calculeaza hash-ul unei parole cu o sare noua (blocant, cost ~ iteratii).
+     *
+     * @param password parola in clar.
+     * @return hash-ul codificat cu parametrii lui.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] dk = derive(password, salt, iterations, HASH_BITS);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(dk);
+    }
+
+    /**
+     * verifica parola fata de un hash salvat (pbkdf2 sau sha-256 vechi), comparand in timp constant.
+     * pentru un hash null se verifica un hash fals, cu acelasi cost.
+     *
+     * @param password parola in clar.
+     * @param encoded hash-ul salvat (poate fi null).
+     * @return true daca parola corespunde.
+     */
+    public boolean verify(String password, String encoded) {
+        if (encoded == null) {
+            verify(password, dummyHash());
+            return false;
+        }
+        if (isLegacy(encoded)) {
+            byte[] expected = HexFormat.of().parseHex(encoded);
+            byte[] actual = Crypto.sha256Bytes(password);
+            return MessageDigest.isEqual(expected, actual);
+        }
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) return false;
+        int iter;
+        try {
+            iter = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        byte[] salt;
+        byte[] expected;
+        try {
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        byte[] actual = derive(password, salt, iter, expected.length * 8);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * spune daca hash-ul salvat trebuie refacut (format vechi sau mai putine iteratii decat cele curente).
+     *
+     * @param encoded hash-ul salvat.
+     * @return true daca trebuie refacut la urmatoarea autentificare reusita.
+     */
+    public boolean needsRehash(String encoded) {
+        if (encoded == null || isLegacy(encoded)) return true;
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) return true;
+        try {
+            return Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * hash pe pool-ul pbkdf2.
+     *
+     * @param password parola in clar.
+     * @return future cu hash-ul; esueaza imediat daca pool-ul este plin.
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> hash(password));
+    }
+
+    /**
+     * verificare pe pool-ul pbkdf2.
+     *
+     * @param password parola in clar.
+     * @param encoded hash-ul salvat (poate fi null).
+     * @return future cu rezultatul verificarii; esueaza imediat daca pool-ul este plin.
+     */
+    public CompletableFuture<Boolean> verifyAsync(String password, String encoded) {
+        return submit(() -> verify(password, encoded));
+    }
+
+    private String dummyHash() {
+        String h = dummyHash;
+        if (h != null) return h;
+        synchronized (this) {
+            if (dummyHash == null) dummyHash = hash("parola-inexistenta");
+            return dummyHash;
+        }
+    }
+
+    /** @return cate calcule pbkdf2 asteapta in coada in acest moment. */
+    public static int queued() {
+        return POOL.getQueue().size();
+    }
+
+    private static <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, POOL);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new OverloadedException("Prea multe autentificari simultane. Reincearca in cateva secunde.",
+                            Duration.ofSeconds(2), e));
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int bits) {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (Exception e) {
+            throw new RuntimeException("pbkdf2 esuat: " + e.getMessage(), e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    private static boolean isLegacy(String encoded) {
+        if (encoded.length() != 64) return false;
+        for (int i = 0; i < encoded.length(); i++) {
+            if (Character.digit(encoded.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static int iterationsFromEnv() {
+        String v = System.getenv("AICOACH_PBKDF2_ITERATIONS");
+        if (v == null || v.isBlank()) return DEFAULT_ITERATIONS;
+        try {
+            return Math.max(10_000, Integer.parseInt(v.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_ITERATIONS;
+        }
+    }
+
+    private static ThreadPoolExecutor newPool() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), Async.namedDaemon("aicoach-kdf"));
+    }
+}
@@ -0,0 +1,170 @@
+package aicoach.service;
+
+import aicoach.dao.AiCacheDao;
+import aicoach.model.CachedResponse;
+import aicoach.util.Crypto;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @file plancache.java
+ * @brief cache adresat dupa continut pentru raspunsurile ai deterministe (planuri).
+ *
+ * cheia este sha-256 peste model + system prompt + mesajul user + temperatura + maxtokens, deci doua
+ * cereri identice primesc acelasi raspuns fara apel remote. intrarile expira dupa ttl iar in memorie se
+ * pastreaza cel mult capacity intrari (lru). optional, intrarile sunt salvate si in tabela ai_cache
+ * ca sa supravietuiasca repornirii aplicatiei.
+ */
+public final class PlanCache {
+
+    /** cat timp ramane valid un raspuns salvat. */
+    public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+
+    /** numarul maxim de raspunsuri tinute in memorie (si in tabela ai_cache). */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** dupa cate scrieri se curata tabela ai_cache de intrari expirate. */
+    private static final int PURGE_EVERY = 32;
+
+    /** cache-ul comun aplicatiei, persistat in ai_cache. */
+    private static final PlanCache SHARED = new PlanCache(DEFAULT_CAPACITY, DEFAULT_TTL, new AiCacheDao());
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final AiCacheDao dao;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity numarul maxim de intrari tinute in memorie.
+     * @param ttl durata de viata a unei intrari.
+     * @param dao dao-ul pentru persistenta; null pentru un cache doar in memorie.
+     */
+    public PlanCache(int capacity, Duration ttl, AiCacheDao dao) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlMillis = ttl.toMillis();
+        this.dao = dao;
+    }
+
+    /**
+     * returneaza cache-ul comun aplicatiei (persistat in baza de date).
+     *
+     * @return cache-ul partajat.
+     */
+    public static PlanCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * calculeaza cheia unei cereri ai; orice diferenta in model, prompt-uri sau parametri da alta cheie.
+     *
+     * @param model modelul cerut.
+     * @param system mesajul de sistem.
+     * @param user mesajul utilizatorului.
+     * @param temperature temperatura.
+     * @param maxTokens limita de tokeni.
+     * @return hash sha-256 hex al cererii.
+     */
+    public static String key(String model, String system, String user, double temperature, int maxTokens) {
+        return Crypto.sha256(String.join("\u0000",
+                model, system, user, Double.toString(temperature), Integer.toString(maxTokens)));
+    }
+
+    /**
+     * cauta raspunsul pentru cheie: intai in memorie, apoi (daca exista dao) in tabela ai_cache.
+     * cautarea in tabela este blocanta, deci metoda nu se apeleaza de pe edt.
+     *
+     * @param key cheia cererii (vezi key(...)).
+     * @return raspunsul salvat sau null daca lipseste / a expirat.
+     */
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null && now - e.createdAt < ttlMillis) {
+                hits.incrementAndGet();
+                return e.content;
+            }
+            if (e != null) entries.remove(key);
+        }
+        if (dao != null) {
+            CachedResponse saved = dao.get(key, now - ttlMillis);
+            if (saved != null) {
+                diskHits.incrementAndGet();
+                // varsta intrarii ramane cea din tabela, altfel ar mai fi servita inca un ttl din memorie
+                remember(key, saved.content(), saved.createdAt());
+                return saved.content();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * salveaza raspunsul pentru cheie in memorie si (daca exista dao) in tabela ai_cache.
+     * scrierea in tabela trece prin firul de scriere al bazei de date, deci este blocanta.
+     *
+     * @param key cheia cererii.
+     * @param model modelul care a generat raspunsul.
+     * @param content textul raspunsului; raspunsurile goale nu se salveaza.
+     */
+    public void put(String key, String model, String content) {
+        if (content == null || content.isBlank()) return;
+        long now = System.currentTimeMillis();
+        remember(key, content, now);
+        if (dao == null) return;
+        dao.put(key, model, content);
+        if (puts.incrementAndGet() % PURGE_EVERY == 0) dao.purge(now - ttlMillis, capacity);
+    }
+
+    /** goleste cache-ul din memorie si tabela ai_cache. */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        if (dao != null) dao.clear();
+    }
+
+    /**
+     * returneaza un instantaneu al contoarelor cache-ului.
+     *
+     * @return statisticile curente.
+     */
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(capacity, size, hits.get(), diskHits.get(), misses.get(), puts.get(), evictions.get());
+    }
+
+    /** adauga intrarea in memorie si scoate cele mai vechi intrari peste capacitate. */
+    private void remember(String key, String content, long createdAt) {
+        synchronized (entries) {
+            entries.put(key, new Entry(content, createdAt));
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > capacity && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /** un raspuns din memorie si momentul (ms epoch) in care a fost generat. */
+    private record Entry(String content, long createdAt) {}
+
+    /**
+     * statisticile cache-ului: hits = gasite in memorie, diskhits = gasite in ai_cache, misses = apel remote necesar.
+     */
+    public record Stats(int capacity, int size, long hits, long diskHits, long misses, long puts, long evictions) {}
+}
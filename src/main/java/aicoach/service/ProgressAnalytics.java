@@ -0,0 +1,207 @@
+package aicoach.service;
+
+import aicoach.dao.ProgressDao;
+import aicoach.model.ProgressDay;
+import aicoach.model.ProgressStats;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @file progressanalytics.java
+ * @brief statistici de progres (medii mobile, trend saptamanal, calorii, aderenta) cu cache per utilizator.
+ *
+ * agregarea pe zile si mediile mobile pe 7/30 de zile se fac in sql (progressdao.dailyseries, functii
+ * fereastra); restul statisticilor se calculeaza intr-o singura trecere peste zile. rezultatul ramane in
+ * cache pana cand progressdao anunta un insert/delete pentru acel utilizator.
+ */
+public final class ProgressAnalytics {
+
+    /** cate saptamani recente se pastreaza in statistici. */
+    private static final int WEEKS = 12;
+
+    private static final ProgressAnalytics SHARED = new ProgressAnalytics(new ProgressDao());
+
+    private final ProgressDao dao;
+    private final ConcurrentHashMap<Long, Cached> cache = new ConcurrentHashMap<>();
+
+    /** versiunea datelor fiecarui utilizator; creste la fiecare modificare anuntata de progressdao. */
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @param dao dao-ul progresului; cache-ul se inregistreaza ca ascultator al modificarilor.
+     */
+    public ProgressAnalytics(ProgressDao dao) {
+        this.dao = dao;
+        ProgressDao.addChangeListener(this::invalidate);
+    }
+
+    /**
+     * returneaza instanta comuna aplicatiei.
+     *
+     * @return analytics-ul partajat.
+     */
+    public static ProgressAnalytics shared() {
+        return SHARED;
+    }
+
+    /**
+     * returneaza statisticile utilizatorului, din cache sau calculate acum (blocant, acces la db).
+     *
+     * @param userId id-ul utilizatorului.
+     * @return statisticile de progres.
+     */
+    public ProgressStats stats(long userId) {
+        long version = versions.getOrDefault(userId, 0L);
+        Cached c = cache.get(userId);
+        if (c != null && c.version == version) return c.stats;
+
+        ProgressStats stats = compute(dao.dailySeries(userId), LocalDate.now());
+        if (versions.getOrDefault(userId, 0L) == version) cache.put(userId, new Cached(version, stats));
+        return stats;
+    }
+
+    /**
+     * scoate statisticile utilizatorului din cache (apelat automat dupa modificari in progress).
+     *
+     * @param userId id-ul utilizatorului.
+     */
+    public void invalidate(long userId) {
+        versions.merge(userId, 1L, Long::sum);
+        cache.remove(userId);
+    }
+
+    /**
+     * calculeaza statisticile dintr-o singura trecere peste zilele agregate.
+     *
+     * @param series zilele cu progres, ordonate crescator (cu mediile mobile din sql).
+     * @param today ziua curenta (pentru dayssincelast).
+     * @return statisticile.
+     */
+    static ProgressStats compute(List<ProgressDay> series, LocalDate today) {
+        if (series.isEmpty()) {
+            return new ProgressStats(0, null, null, 0, null, null, null, null, null, null, 0, 0, 0, 0, 0, List.of());
+        }
+        ProgressDay lastRow = series.get(series.size() - 1);
+        LocalDate last = LocalDate.parse(lastRow.day());
+
+        Double latestWeight = null;
+        double w7 = 0, wPrev = 0;
+        int nw7 = 0, nwPrev = 0;
+        long cal7 = 0;
+        int ncal7 = 0;
+        long cal30 = 0;
+        int min7 = 0, min30 = 0, days7 = 0, days30 = 0;
+        // regresie liniara greutate ~ zi pe ultimele 30 de zile
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        int n = 0;
+
+        List<ProgressStats.Week> weeks = new ArrayList<>();
+        LocalDate weekStart = null;
+        double weekW = 0;
+        int weekNw = 0, weekMin = 0, weekDays = 0;
+        long weekCal = 0;
+        Double prevWeekAvg = null;
+
+        for (ProgressDay d : series) {
+            LocalDate day = LocalDate.parse(d.day());
+            long age = ChronoUnit.DAYS.between(day, last);
+            Double w = d.weightKg();
+            int cal = d.calories() == null ? 0 : d.calories();
+            int mins = d.workoutMin() == null ? 0 : d.workoutMin();
+            if (w != null) latestWeight = w;
+
+            if (age < 7) {
+                days7++;
+                min7 += mins;
+                if (d.calories() != null) {
+                    cal7 += cal;
+                    ncal7++;
+                }
+                if (w != null) {
+                    w7 += w;
+                    nw7++;
+                }
+            } else if (age < 14 && w != null) {
+                wPrev += w;
+                nwPrev++;
+            }
+            if (age < 30) {
+                days30++;
+                min30 += mins;
+                cal30 += cal;
+                if (w != null) {
+                    double x = -age;
+                    sx += x;
+                    sy += w;
+                    sxx += x * x;
+                    sxy += x * w;
+                    n++;
+                }
+            }
+
+            LocalDate ws = day.with(DayOfWeek.MONDAY);
+            if (!ws.equals(weekStart)) {
+                if (weekStart != null) {
+                    prevWeekAvg = closeWeek(weeks, weekStart, weekW, weekNw, weekCal, weekMin, weekDays, prevWeekAvg);
+                }
+                weekStart = ws;
+                weekW = 0;
+                weekNw = 0;
+                weekCal = 0;
+                weekMin = 0;
+                weekDays = 0;
+            }
+            weekDays++;
+            weekCal += cal;
+            weekMin += mins;
+            if (w != null) {
+                weekW += w;
+                weekNw++;
+            }
+        }
+        closeWeek(weeks, weekStart, weekW, weekNw, weekCal, weekMin, weekDays, prevWeekAvg);
+        if (weeks.size() > WEEKS) weeks = weeks.subList(weeks.size() - WEEKS, weeks.size());
+
+        Double avg7 = lastRow.weight7();
+        Double avg30 = lastRow.weight30();
+        Double delta = nw7 == 0 || nwPrev == 0 ? null : w7 / nw7 - wPrev / nwPrev;
+        double denom = n * sxx - sx * sx;
+        Double trend = n < 2 || denom == 0 ? null : (n * sxy - sx * sy) / denom * 7;
+
+        return new ProgressStats(
+                series.size(),
+                series.get(0).day(),
+                lastRow.day(),
+                Math.max(0, ChronoUnit.DAYS.between(last, today)),
+                latestWeight,
+                avg7,
+                avg30,
+                delta,
+                trend,
+                ncal7 == 0 ? null : (double) cal7 / ncal7,
+                cal30,
+                min7,
+                min30,
+                days7,
+                days30,
+                List.copyOf(weeks)
+        );
+    }
+
+    /** adauga saptamana incheiata si intoarce media ei de greutate (sau media anterioara daca nu are greutati). */
+    private static Double closeWeek(List<ProgressStats.Week> weeks, LocalDate start, double w, int nw,
+                                    long cal, int mins, int days, Double prevAvg) {
+        Double avg = nw == 0 ? null : w / nw;
+        Double delta = avg == null || prevAvg == null ? null : avg - prevAvg;
+        weeks.add(new ProgressStats.Week(start.toString(), avg, delta, cal, mins, days));
+        return avg != null ? avg : prevAvg;
+    }
+
+    /** statisticile din cache si versiunea datelor pe care au fost calculate. */
+    private record Cached(long version, ProgressStats stats) {}
+}
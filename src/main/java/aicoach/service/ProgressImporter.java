@@ -0,0 +1,363 @@
+package aicoach.service;
+
+import aicoach.dao.ProfileDao;
+import aicoach.dao.ProgressDao;
+import aicoach.model.ProgressEntry;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @file progressimporter.java
+ * @brief import in masa al istoricului de progres din fisiere csv sau json (ex. exporturi din alte aplicatii).
+ *
+ * fisierul este citit in flux, rand cu rand (csv) sau obiect cu obiect (json, cu parser-ul jackson), deci in
+ * memorie se tine doar lotul curent. randurile invalide sunt sarite si raportate; cele valide se scriu in loturi
+ * de batch_size, fiecare lot intr-o singura tranzactie (progressdao.insertbatch). greutatea din profil se
+ * actualizeaza o singura data, la final, cu greutatea celei mai recente inregistrari.
+ *
+ * coloanele recunoscute (antet csv / chei json, fara diferenta intre litere mari si mici):
+ * data/date/entry_date, greutate/weight/weight_kg, calorii/calories/calories_consumed,
+ * minute/minutes/workout_min/minute_antrenament, note/notes.
+ */
+public final class ProgressImporter {
+
+    /** cate randuri se scriu intr-o tranzactie. */
+    public static final int BATCH_SIZE = 500;
+
+    /** cate mesaje de eroare se pastreaza in rezultat (restul sunt doar numarate). */
+    private static final int MAX_ERRORS = 20;
+
+    private static final ObjectMapper OM = new ObjectMapper();
+    private static final DateTimeFormatter RO_DATE = DateTimeFormatter.ofPattern("d.M.uuuu");
+
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("data", "date"), Map.entry("date", "date"), Map.entry("entry_date", "date"),
+            Map.entry("greutate", "weight"), Map.entry("weight", "weight"), Map.entry("weight_kg", "weight"),
+            Map.entry("calorii", "calories"), Map.entry("calories", "calories"),
+            Map.entry("calories_consumed", "calories"),
+            Map.entry("minute", "minutes"), Map.entry("minutes", "minutes"), Map.entry("workout_min", "minutes"),
+            Map.entry("minute_antrenament", "minutes"),
+            Map.entry("note", "notes"), Map.entry("notes", "notes")
+    );
+
+    private final ProgressDao progressDao;
+    private final ProfileDao profileDao;
+
+    /** importator care scrie prin dao-urile implicite. */
+    public ProgressImporter() {
+        this(new ProgressDao(), new ProfileDao());
+    }
+
+    /**
+     * @param progressdao dao-ul in care se scriu inregistrarile.
+     * @param profiledao dao-ul profilului (pentru greutatea finala).
+     */
+    public ProgressImporter(ProgressDao progressDao, ProfileDao profileDao) {
+        this.progressDao = progressDao;
+        this.profileDao = profileDao;
+    }
+
+    /**
+     * importa un fisier; formatul se alege dupa extensie (.json, altfel csv). blocant, nu se apeleaza de pe edt.
+     *
+     * @param userid utilizatorul caruia i se adauga inregistrarile.
+     * @param file fisierul de importat (utf-8).
+     * @return rezultatul importului.
+     * @throws runtimeexception daca fisierul nu poate fi citit sau nu are formatul asteptat.
+     */
+    public Result importFile(long userId, Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try {
+            if (name.endsWith(".json")) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    return importJson(userId, in);
+                }
+            }
+            try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return importCsv(userId, r);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Import progres esuat: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * importa un csv cu antet; separatorul (virgula sau punct si virgula) se deduce din antet.
+     * cu punct si virgula, numerele pot folosi virgula zecimala (ex. 72,5).
+     *
+     * @param userid utilizatorul caruia i se adauga inregistrarile.
+     * @param in textul csv.
+     * @return rezultatul importului.
+     * @throws ioexception daca citirea esueaza.
+     */
+    public Result importCsv(long userId, Reader in) throws IOException {
+        BufferedReader r = in instanceof BufferedReader b ? b : new BufferedReader(in);
+        String headerLine = r.readLine();
+        if (headerLine == null) throw new IllegalArgumentException("Fisierul CSV este gol.");
+        if (headerLine.startsWith("\uFEFF")) headerLine = headerLine.substring(1);
+        char sep = headerLine.indexOf(';') >= 0 && headerLine.indexOf(',') < 0 ? ';' : ',';
+
+        List<String> header = new ArrayList<>();
+        CsvReader csv = new CsvReader(r, sep);
+        csv.split(headerLine, header);
+        String[] fields = new String[header.size()];
+        for (int i = 0; i < fields.length; i++) fields[i] = COLUMNS.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+        if (!List.of(fields).contains("date")) throw new IllegalArgumentException("Antetul CSV nu are coloana data.");
+
+        Batch batch = new Batch(userId);
+        List<String> cells = new ArrayList<>();
+        Map<String, String> row = new HashMap<>();
+        while (csv.next(cells)) {
+            if (cells.size() == 1 && cells.get(0).isBlank()) continue;
+            row.clear();
+            for (int i = 0; i < fields.length && i < cells.size(); i++) {
+                if (fields[i] != null) row.put(fields[i], sep == ';' ? decimalComma(cells.get(i)) : cells.get(i));
+            }
+            batch.add(csv.row(), row);
+        }
+        return batch.finish();
+    }
+
+    /**
+     * importa un tablou json de obiecte; fiecare obiect este citit si validat separat, fara a incarca tot fisierul.
+     *
+     * @param userid utilizatorul caruia i se adauga inregistrarile.
+     * @param in continutul json.
+     * @return rezultatul importului.
+     * @throws illegalargumentexception daca json-ul nu este valid sau nu este un tablou.
+     * @throws ioexception daca citirea esueaza.
+     */
+    public Result importJson(long userId, InputStream in) throws IOException {
+        Batch batch = new Batch(userId);
+        try (JsonParser p = OM.getFactory().createParser(in)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Fisierul JSON trebuie sa contina un tablou de inregistrari.");
+            }
+            Map<String, String> row = new HashMap<>();
+            int index = 0;
+            for (JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+                if (t == null) throw new IllegalArgumentException("Tabloul JSON nu este inchis.");
+                index++;
+                if (t != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    batch.reject(index, "nu este obiect");
+                    continue;
+                }
+                JsonNode node = OM.readTree(p);
+                row.clear();
+                for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> f = it.next();
+                    String field = COLUMNS.get(f.getKey().toLowerCase(Locale.ROOT));
+                    if (field != null && !f.getValue().isNull()) row.put(field, f.getValue().asText());
+                }
+                batch.add(index, row);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Fisierul JSON nu este valid: " + e.getOriginalMessage(), e);
+        }
+        return batch.finish();
+    }
+
+    /**
+     * valideaza un rand si il transforma in inregistrare.
+     *
+     * @throws illegalargumentexception cu motivul pentru care randul este respins.
+     */
+    private static ProgressEntry toEntry(long userId, Map<String, String> row) {
+        String date = parseDate(row.get("date"));
+        Double weight = parseNumber(row.get("weight"), "greutate", 20, 400);
+        Double calories = parseNumber(row.get("calories"), "calorii", 0, 20000);
+        Double minutes = parseNumber(row.get("minutes"), "minute", 0, 1440);
+        String notes = row.get("notes");
+        if (notes != null && notes.isBlank()) notes = null;
+        if (weight == null && calories == null && minutes == null && notes == null) {
+            throw new IllegalArgumentException("rand fara valori");
+        }
+        return new ProgressEntry(0, userId, date, weight,
+                calories == null ? null : (int) Math.round(calories),
+                minutes == null ? null : (int) Math.round(minutes),
+                notes);
+    }
+
+    /** accepta yyyy-mm-dd (si cu ora dupa) sau zz.ll.aaaa; intoarce data in format iso. */
+    private static String parseDate(String s) {
+        String t = s == null ? "" : s.trim();
+        if (t.isEmpty()) throw new IllegalArgumentException("data lipseste");
+        try {
+            if (t.length() > 10 && t.charAt(4) == '-') t = t.substring(0, 10);
+            if (t.indexOf('.') > 0) return LocalDate.parse(t, RO_DATE).toString();
+            return LocalDate.parse(t).toString();
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("data invalida: " + s);
+        }
+    }
+
+    private static Double parseNumber(String s, String name, double min, double max) {
+        String t = s == null ? "" : s.trim();
+        if (t.isEmpty()) return null;
+        double v;
+        try {
+            v = Double.parseDouble(t);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " invalida: " + s);
+        }
+        if (!(v >= min && v <= max)) throw new IllegalArgumentException(name + " in afara intervalului: " + s);
+        return v;
+    }
+
+    private static String decimalComma(String s) {
+        return s.indexOf(',') >= 0 && s.indexOf('.') < 0 && s.trim().matches("-?\\d+,\\d+") ? s.replace(',', '.') : s;
+    }
+
+    /**
+     * rezultatul unui import.
+     *
+     * @param imported randurile salvate.
+     * @param skipped randurile respinse la validare.
+     * @param errors primele mesaje de eroare (rand: motiv).
+     */
+    public record Result(int imported, int skipped, List<String> errors) {}
+
+    /** lotul curent de randuri valide si contoarele importului. */
+    private final class Batch {
+        private final long userId;
+        private final List<ProgressEntry> pending = new ArrayList<>(BATCH_SIZE);
+        private final List<String> errors = new ArrayList<>();
+        private int imported;
+        private int skipped;
+        private boolean hasWeight;
+
+        private Batch(long userId) {
+            this.userId = userId;
+        }
+
+        private void add(int row, Map<String, String> fields) {
+            ProgressEntry e;
+            try {
+                e = toEntry(userId, fields);
+            } catch (IllegalArgumentException ex) {
+                reject(row, ex.getMessage());
+                return;
+            }
+            hasWeight |= e.weightKg() != null;
+            pending.add(e);
+            if (pending.size() >= BATCH_SIZE) flush();
+        }
+
+        /** numara un rand respins si pastreaza motivul (primele max_errors). */
+        private void reject(int row, String reason) {
+            skipped++;
+            if (errors.size() < MAX_ERRORS) errors.add("rand " + row + ": " + reason);
+        }
+
+        private void flush() {
+            imported += progressDao.insertBatch(pending);
+            pending.clear();
+        }
+
+        private Result finish() {
+            flush();
+            if (hasWeight) {
+                Double w = progressDao.latestWeight(userId);
+                if (w != null) profileDao.updateWeight(userId, w);
+            }
+            return new Result(imported, skipped, List.copyOf(errors));
+        }
+    }
+
+    /** cititor csv minimal (rfc 4180): campuri intre ghilimele, ghilimele dublate si randuri pe mai multe linii. */
+    private static final class CsvReader {
+        private final BufferedReader in;
+        private final char sep;
+        private final StringBuilder cell = new StringBuilder();
+        /** ultima linie fizica citita (antetul, citit de apelant, este linia 1). */
+        private int line = 1;
+        /** linia fizica pe care a inceput ultimul rand intors de next. */
+        private int row;
+
+        private CsvReader(BufferedReader in, char sep) {
+            this.in = in;
+            this.sep = sep;
+        }
+
+        /** linia din fisier pe care incepe randul citit ultima data (un rand poate ocupa mai multe linii). */
+        private int row() {
+            return row;
+        }
+
+        /** imparte o linie deja citita (antetul). */
+        private void split(String line, List<String> out) throws IOException {
+            out.clear();
+            parse(line, out);
+        }
+
+        /** citeste urmatorul rand; false la sfarsitul fisierului. */
+        private boolean next(List<String> out) throws IOException {
+            String line = in.readLine();
+            if (line == null) return false;
+            this.line++;
+            row = this.line;
+            out.clear();
+            parse(line, out);
+            return true;
+        }
+
+        private void parse(String line, List<String> out) throws IOException {
+            cell.setLength(0);
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i >= line.length()) {
+                    if (!quoted) break;
+                    // camp intre ghilimele care continua pe linia urmatoare
+                    String more = in.readLine();
+                    if (more == null) break;
+                    this.line++;
+                    cell.append('\n');
+                    line = more;
+                    i = 0;
+                    continue;
+                }
+                char ch = line.charAt(i++);
+                if (quoted) {
+                    if (ch != '"') {
+                        cell.append(ch);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (ch == '"') {
+                    quoted = true;
+                } else if (ch == sep) {
+                    out.add(cell.toString());
+                    cell.setLength(0);
+                } else {
+                    cell.append(ch);
+                }
+            }
+            out.add(cell.toString());
+        }
+    }
+}
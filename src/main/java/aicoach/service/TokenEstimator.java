@@ -0,0 +1,84 @@
+package aicoach.service;
+
+import aicoach.ai.AiMessage;
+
+/**
+ * @file tokenestimator.java
+ * @brief aproximare locala a numarului de tokeni (fara tokenizer-ul real al modelului).
+ *
+ * imita un tokenizer bpe: o secventa de litere/cifre costa un token la fiecare 4 caractere (minim 1),
+ * fiecare semn de punctuatie sau simbol costa un token, spatiile se lipesc de cuvantul urmator, iar
+ * caracterele non-ascii (diacritice, emoji) costa cate un token separat. eroarea tipica este de cateva
+ * procente, suficient pentru a incadra contextul intr-un buget.
+ */
+public final class TokenEstimator {
+
+    /** tokenii adaugati de api pentru fiecare mesaj (rol + separatori). */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    /** constructor privat: clasa utilitara nu se instantiaza. */
+    private TokenEstimator() {}
+
+    /**
+     * estimeaza numarul de tokeni dintr-un text.
+     *
+     * @param s textul (poate fi null).
+     * @return numarul estimat de tokeni.
+     */
+    public static int estimate(String s) {
+        if (s == null || s.isEmpty()) return 0;
+        return count(s, Integer.MAX_VALUE)[0];
+    }
+
+    /**
+     * estimeaza tokenii unui mesaj, cu tot cu overhead-ul de rol.
+     *
+     * @param m mesajul.
+     * @return numarul estimat de tokeni.
+     */
+    public static int estimate(AiMessage m) {
+        return MESSAGE_OVERHEAD + estimate(m.content());
+    }
+
+    /**
+     * taie textul astfel incat sa incapa in maxtokens (adaugand "…" daca a fost taiat).
+     *
+     * @param s textul.
+     * @param maxTokens numarul maxim de tokeni.
+     * @return textul intreg daca incape, altfel prefixul care incape urmat de "…".
+     */
+    public static String truncate(String s, int maxTokens) {
+        if (s == null || maxTokens <= 0) return "";
+        int[] r = count(s, maxTokens - 1);
+        if (r[1] >= s.length()) return s;
+        return s.substring(0, r[1]) + "…";
+    }
+
+    /**
+     * numara tokenii pana la limit si intoarce {tokeni, indexul de taiere}.
+     * indexul este lungimea prefixului care se incadreaza in limit (s.length() daca tot textul incape).
+     */
+    private static int[] count(String s, int limit) {
+        int tokens = 0;
+        int run = 0;
+        int i = 0;
+        int cut = 0;
+        while (i < s.length()) {
+            char ch = s.charAt(i);
+            int add;
+            if (ch < 128 && Character.isLetterOrDigit(ch)) {
+                add = run % 4 == 0 ? 1 : 0;
+                run++;
+            } else {
+                run = 0;
+                add = Character.isWhitespace(ch) ? 0 : 1;
+            }
+            if (tokens + add > limit) return new int[]{tokens, cut};
+            tokens += add;
+            i++;
+            if (Character.isHighSurrogate(ch) && i < s.length()) i++;
+            cut = i;
+        }
+        return new int[]{tokens, s.length()};
+    }
+}
@@ -53,6 +53,10 @@ public final class AppFrame extends JFrame {
     }
 
     public void logout() {
+        if (mainPanel != null) {
+            root.remove(mainPanel);
+            mainPanel = null;
+        }
         showLogin();
     }
 }
@@ -0,0 +1,195 @@
+package aicoach.ui;
+
+import aicoach.dao.ChatDao;
+import aicoach.model.ChatMessage;
+import aicoach.service.Async;
+import aicoach.util.Dialogs;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+final class ChatTranscript {
+    static final int PAGE_SIZE = 50;
+
+    private final ChatDao chatDao;
+    private final JTextArea chat;
+    private final JScrollPane scroll;
+    private final long userId;
+    private final UiTasks tasks;
+
+    private long firstId = Long.MAX_VALUE;
+    private long lastId = 0;
+    private boolean hasOlder = true;
+    private boolean loadingOlder = false;
+    private int lastScrollValue = 0;
+    private long generation = 0;
+    private int pendingStart = -1;
+    private boolean pendingClosed = false;
+
+    ChatTranscript(ChatDao chatDao, JTextArea chat, JScrollPane scroll, long userId, UiTasks tasks) {
+        this.chatDao = chatDao;
+        this.chat = chat;
+        this.scroll = scroll;
+        this.userId = userId;
+        this.tasks = tasks;
+
+        ((DefaultCaret) chat.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        scroll.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (e.getValueIsAdjusting()) return;
+            JScrollBar bar = scroll.getVerticalScrollBar();
+            boolean reachedTop = bar.getValue() == bar.getMinimum() && lastScrollValue > bar.getMinimum();
+            lastScrollValue = bar.getValue();
+            if (reachedTop) loadOlder();
+        });
+        // fara bara de derulare (continutul incape in fereastra) nu exista derulare spre inceput, deci
+        // paginile mai vechi se incarca singure pana se umple fereastra sau nu mai exista istoric
+        scroll.getViewport().addChangeListener(e -> fillViewport());
+    }
+
+    void reset() {
+        reset(Async.db(() -> chatDao.latest(userId, PAGE_SIZE)));
+    }
+
+    /** afiseaza de la zero pagina cea mai recenta, deja ceruta (ex. preincarcata de mainpanel). */
+    void reset(CompletableFuture<List<ChatMessage>> latest) {
+        long gen = ++generation;
+        tasks.run(latest,
+                page -> {
+                    if (gen != generation) return;
+                    chat.setText("");
+                    pendingStart = -1;
+                    pendingClosed = false;
+                    firstId = Long.MAX_VALUE;
+                    lastId = 0;
+                    hasOlder = page.size() == PAGE_SIZE;
+                    append(page);
+                },
+                ex -> Dialogs.error(chat, ex.getMessage()));
+    }
+
+    void loadNewer() {
+        long gen = generation;
+        long from = lastId;
+        tasks.run(Async.db(() -> {
+                    List<ChatMessage> out = new ArrayList<>();
+                    List<ChatMessage> page;
+                    long cursor = from;
+                    do {
+                        page = chatDao.after(userId, cursor, PAGE_SIZE);
+                        out.addAll(page);
+                        if (!page.isEmpty()) cursor = page.get(page.size() - 1).id();
+                    } while (page.size() == PAGE_SIZE);
+                    return out;
+                }),
+                msgs -> {
+                    if (gen != generation) return;
+                    List<ChatMessage> fresh = new ArrayList<>();
+                    for (ChatMessage m : msgs) if (m.id() > lastId) fresh.add(m);
+                    append(fresh);
+                },
+                ex -> Dialogs.error(chat, ex.getMessage()));
+    }
+
+    void beginPending(String role) {
+        if (pendingStart >= 0) removePending();
+        pendingStart = chat.getDocument().getLength();
+        pendingClosed = false;
+        chat.append("[" + role + "] ");
+        chat.setCaretPosition(chat.getDocument().getLength());
+    }
+
+    void appendPending(String text) {
+        if (pendingStart < 0 || pendingClosed) return;
+        chat.append(text);
+        chat.setCaretPosition(chat.getDocument().getLength());
+    }
+
+    void closePending() {
+        if (pendingStart >= 0) pendingClosed = true;
+    }
+
+    void discardPending() {
+        if (pendingStart >= 0) removePending();
+    }
+
+    private void removePending() {
+        try {
+            chat.getDocument().remove(pendingStart, chat.getDocument().getLength() - pendingStart);
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        pendingStart = -1;
+        pendingClosed = false;
+    }
+
+    private void loadOlder() {
+        if (!hasOlder || loadingOlder || firstId == Long.MAX_VALUE) return;
+        loadingOlder = true;
+        long gen = generation;
+        long before = firstId;
+        tasks.run(Async.db(() -> chatDao.before(userId, before, PAGE_SIZE)),
+                page -> {
+                    loadingOlder = false;
+                    if (gen != generation || before != firstId) return;
+                    hasOlder = page.size() == PAGE_SIZE;
+                    if (page.isEmpty()) return;
+                    prepend(page);
+                },
+                ex -> {
+                    loadingOlder = false;
+                    Dialogs.error(chat, ex.getMessage());
+                });
+    }
+
+    private void fillViewport() {
+        JViewport viewport = scroll.getViewport();
+        int visible = viewport.getExtentSize().height;
+        if (visible > 0 && viewport.getViewSize().height <= visible) loadOlder();
+    }
+
+    private void prepend(List<ChatMessage> page) {
+        JScrollBar bar = scroll.getVerticalScrollBar();
+        int oldMax = bar.getMaximum();
+        int oldValue = bar.getValue();
+        String text = format(page);
+        try {
+            chat.getDocument().insertString(0, text, null);
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        firstId = page.get(0).id();
+        if (pendingStart >= 0) pendingStart += text.length();
+        SwingUtilities.invokeLater(() -> bar.setValue(oldValue + bar.getMaximum() - oldMax));
+    }
+
+    private void append(List<ChatMessage> msgs) {
+        if (msgs.isEmpty()) return;
+        if (pendingStart >= 0 && pendingClosed) removePending();
+        String text = format(msgs);
+        if (pendingStart >= 0) {
+            try {
+                chat.getDocument().insertString(pendingStart, text, null);
+            } catch (BadLocationException ex) {
+                throw new IllegalStateException(ex);
+            }
+            pendingStart += text.length();
+        } else {
+            chat.append(text);
+        }
+        if (firstId == Long.MAX_VALUE) firstId = msgs.get(0).id();
+        lastId = msgs.get(msgs.size() - 1).id();
+        chat.setCaretPosition(chat.getDocument().getLength());
+    }
+
+    private static String format(List<ChatMessage> msgs) {
+        StringBuilder sb = new StringBuilder();
+        for (ChatMessage m : msgs) {
+            sb.append("[").append(m.role()).append("] ").append(m.message()).append("\n\n");
+        }
+        return sb.toString();
+    }
+}
@@ -1,6 +1,5 @@
 package aicoach.ui;
 
-import aicoach.model.User;
 import aicoach.service.AuthService;
 import aicoach.util.Dialogs;
 
@@ -9,6 +8,7 @@ import java.awt.*;
 
 public final class LoginPanel extends JPanel {
     private final AuthService auth = new AuthService();
+    private final UiTasks tasks = new UiTasks();
     private final JTextField email = new JTextField(24);
     private final JPasswordField pass = new JPasswordField(24);
 
@@ -44,18 +44,22 @@ public final class LoginPanel extends JPanel {
         add(btnGoRegister, gc);
 
         btnLogin.addActionListener(e -> {
-            try {
-                String em = email.getText();
-                String pw = new String(pass.getPassword());
-                User u = auth.login(em, pw);
-                if (u == null) {
-                    Dialogs.error(this, "Email/parola gresite.");
-                    return;
-                }
-                frame.onAuthenticated(u);
-            } catch (Exception ex) {
-                Dialogs.error(this, ex.getMessage());
-            }
+            String em = email.getText();
+            String pw = new String(pass.getPassword());
+            btnLogin.setEnabled(false);
+            tasks.run(auth.loginAsync(em, pw),
+                    u -> {
+                        btnLogin.setEnabled(true);
+                        if (u == null) {
+                            Dialogs.error(this, "Email/parola gresite.");
+                            return;
+                        }
+                        frame.onAuthenticated(u);
+                    },
+                    ex -> {
+                        btnLogin.setEnabled(true);
+                        Dialogs.error(this, ex.getMessage());
+                    });
         });
 
         btnGoRegister.addActionListener(e -> frame.showRegister());
@@ -1,56 +1,139 @@
 package aicoach.ui;
 
+import aicoach.metrics.Metrics;
 import aicoach.model.User;
+import aicoach.service.Async;
+import aicoach.service.DataExporter;
+import aicoach.util.Dialogs;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 
 public final class MainPanel extends JPanel {
+    private final UiTasks tasks = new UiTasks();
+    private final DataExporter exporter = new DataExporter();
+    private final AppFrame frame;
+    private final User user;
+    private final JTabbedPane tabs = new JTabbedPane();
+
+    /** taburile inca neconstruite: containerul din tab -> constructia panoului (la prima selectie). */
+    private final Map<Component, Runnable> unbuilt = new HashMap<>();
+
+    private ProfilePanel profilePanel;
+    private JDialog profileDialog;
+
     public MainPanel(AppFrame frame, User user, boolean showProfile) {
+        this.frame = frame;
+        this.user = user;
         setLayout(new BorderLayout());
 
         JLabel header = new JLabel("Autentificat ca: " + user.email());
         header.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
 
+        JButton export = new JButton("Exporta date");
         JButton profile = new JButton("Profil");
         JButton logout = new JButton("Iesire");
         JPanel top = new JPanel(new BorderLayout());
         JPanel topRight = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        topRight.add(export);
         topRight.add(profile);
         topRight.add(logout);
         top.add(header, BorderLayout.WEST);
         top.add(topRight, BorderLayout.EAST);
 
-        JTabbedPane tabs = new JTabbedPane();
-        tabs.addTab("Chat", new ChatPanel(user));
-        tabs.addTab("Planuri", new PlansPanel(user));
-        tabs.addTab("Progres", new ProgressPanel(user));
+        // doar tabul vizibil se construieste acum; celelalte la prima selectie
+        lazyTab("Chat", "chat", ChatPanel::prefetch, page -> new ChatPanel(user, page));
+        lazyTab("Planuri", "plans", PlansPanel::prefetch, list -> new PlansPanel(user, list));
+        lazyTab("Progres", "progress", ProgressPanel::prefetch, s -> new ProgressPanel(user, s));
+        tabs.addChangeListener(e -> buildSelected());
+        buildSelected();
 
         add(top, BorderLayout.NORTH);
         add(tabs, BorderLayout.CENTER);
 
         logout.addActionListener(e -> frame.logout());
+        export.addActionListener(e -> exportData(user.id()));
 
-        ProfilePanel profilePanel = new ProfilePanel(user);
-        JDialog profileDialog = new JDialog(frame, "Profil", Dialog.ModalityType.APPLICATION_MODAL);
-        profileDialog.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
-        profileDialog.setContentPane(profilePanel);
-        profileDialog.pack();
+        profile.addActionListener(e -> showProfile());
+        if (showProfile) SwingUtilities.invokeLater(this::showProfile);
+    }
 
-        profile.addActionListener(e -> {
-            profilePanel.reload();
-            profileDialog.pack();
-            profileDialog.setLocationRelativeTo(frame);
-            profileDialog.setVisible(true);
+    /**
+     * adauga un tab construit abia la prima selectie. la construire, citirea datelor (prefetch) porneste pe
+     * executorul de i/o inaintea panoului, deci ruleaza in paralel cu construirea componentelor swing;
+     * timpul pana la afisarea datelor se inregistreaza ca ui.tab.&lt;nume&gt;.
+     */
+    private <T> void lazyTab(String title, String name, LongFunction<CompletableFuture<T>> prefetch,
+                             Function<CompletableFuture<T>, JComponent> build) {
+        JPanel holder = new JPanel(new BorderLayout());
+        tabs.addTab(title, holder);
+        unbuilt.put(holder, () -> {
+            long start = System.nanoTime();
+            CompletableFuture<T> data = prefetch.apply(user.id());
+            holder.add(build.apply(data), BorderLayout.CENTER);
+            holder.revalidate();
+            // dupa callback-ul panoului, care a fost pus in coada edt inaintea acestuia
+            tasks.run(data, d -> SwingUtilities.invokeLater(
+                    () -> Metrics.record("ui.tab." + name, System.nanoTime() - start)), ex -> {});
         });
+    }
+
+    private void buildSelected() {
+        Component selected = tabs.getSelectedComponent();
+        Runnable build = selected == null ? null : unbuilt.remove(selected);
+        if (build != null) build.run();
+    }
 
-        if (showProfile) {
-            SwingUtilities.invokeLater(() -> {
-                profilePanel.reload();
-                profileDialog.pack();
-                profileDialog.setLocationRelativeTo(frame);
-                profileDialog.setVisible(true);
-            });
+    /** dialogul de profil se construieste la prima deschidere. */
+    private void showProfile() {
+        if (profileDialog == null) {
+            profilePanel = new ProfilePanel(user);
+            profileDialog = new JDialog(frame, "Profil", Dialog.ModalityType.APPLICATION_MODAL);
+            profileDialog.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
+            profileDialog.setContentPane(profilePanel);
         }
+        profilePanel.reload();
+        profileDialog.pack();
+        profileDialog.setLocationRelativeTo(frame);
+        profileDialog.setVisible(true);
+    }
+
+    private void exportData(long userId) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("JSON comprimat (.json.gz)", "gz"));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("CSV (arhiva .zip)", "zip"));
+        FileNameExtensionFilter json = new FileNameExtensionFilter("JSON (.json)", "json");
+        chooser.addChoosableFileFilter(json);
+        chooser.setFileFilter(json);
+        chooser.setSelectedFile(new java.io.File("aicoach-export.json"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        Path target = withExtension(chooser.getSelectedFile().toPath(), chooser.getFileFilter());
+        tasks.run(Async.db(() -> exporter.export(userId, target, DataExporter.formatFor(target))),
+                r -> Dialogs.info(this, "Export salvat in " + target + "\nPlanuri: " + r.plans()
+                        + ", progres: " + r.progress() + ", mesaje chat: " + r.chat()),
+                ex -> Dialogs.error(this, ex.getMessage()));
+    }
+
+    private static Path withExtension(Path file, javax.swing.filechooser.FileFilter filter) {
+        if (!(filter instanceof FileNameExtensionFilter f)) return file;
+        String suffix = f.getExtensions()[0].equals("gz") ? ".json.gz" : "." + f.getExtensions()[0];
+        String name = file.getFileName().toString();
+        if (name.toLowerCase().endsWith(suffix)) return file;
+        String base = name.replaceFirst("(?i)(\\.json\\.gz|\\.json|\\.zip|\\.gz)$", "");
+        return file.resolveSibling(base + suffix);
+    }
+
+    @Override
+    public void removeNotify() {
+        tasks.cancelAll();
+        super.removeNotify();
     }
 }
@@ -2,9 +2,12 @@ package aicoach.ui;
 
 import aicoach.dao.PlanDao;
 import aicoach.dao.ProfileDao;
+import aicoach.dao.SearchDao;
 import aicoach.model.Plan;
+import aicoach.model.SearchHit;
 import aicoach.model.User;
 import aicoach.model.UserProfile;
+import aicoach.service.Async;
 import aicoach.service.CoachService;
 import aicoach.util.Dialogs;
 
@@ -12,11 +15,17 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 public final class PlansPanel extends JPanel {
     private final PlanDao planDao = new PlanDao();
     private final ProfileDao profileDao = new ProfileDao();
     private final CoachService coach = new CoachService();
+    private final UiTasks tasks = new UiTasks();
+    private final SearchDao searchDao = new SearchDao();
+    private final SearchBar search;
 
     private final DefaultTableModel model = new DefaultTableModel(new Object[]{"tip", "creat_la"}, 0) {
         @Override public boolean isCellEditable(int r, int c) { return false; }
@@ -25,10 +34,23 @@ public final class PlansPanel extends JPanel {
     private final JTextArea content = new JTextArea();
     private List<Plan> plans = List.of();
 
-    public PlansPanel(User user) {
+    /**
+     * porneste citirea listei de planuri, ca sa ruleze in paralel cu construirea panoului.
+     *
+     * @param userId utilizatorul.
+     * @return planurile utilizatorului.
+     */
+    static CompletableFuture<List<Plan>> prefetch(long userId) {
+        PlanDao dao = new PlanDao();
+        return Async.db(() -> dao.list(userId));
+    }
+
+    public PlansPanel(User user, CompletableFuture<List<Plan>> initial) {
         setLayout(new BorderLayout());
 
         JPanel left = new JPanel(new BorderLayout());
+        search = new SearchBar(tasks, (q, offset, limit) -> searchDao.plans(user.id(), q, offset, limit), this::showPlan);
+        left.add(search, BorderLayout.NORTH);
         left.add(new JScrollPane(table), BorderLayout.CENTER);
 
         JPanel leftButtons = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -48,7 +70,7 @@ public final class PlansPanel extends JPanel {
 
         add(split, BorderLayout.CENTER);
 
-        reload(user.id());
+        show(initial);
 
         table.getSelectionModel().addListSelectionListener(e -> {
             if (e.getValueIsAdjusting()) return;
@@ -58,51 +80,78 @@ public final class PlansPanel extends JPanel {
             content.setText(plans.get(row).content());
         });
 
-        genWorkout.addActionListener(e -> {
-            try {
-                UserProfile p = profileDao.get(user.id());
-                if (p == null) {
-                    Dialogs.error(this, "Mai intai completeaza profilul.");
-                    return;
-                }
-                String txt = coach.generateWorkoutPlan(p);
-                planDao.insert(user.id(), "WORKOUT", txt);
-                reload(user.id());
-            } catch (Exception ex) {
-                Dialogs.error(this, ex.getMessage());
-            }
-        });
-
-        genNutrition.addActionListener(e -> {
-            try {
-                UserProfile p = profileDao.get(user.id());
-                if (p == null) {
-                    Dialogs.error(this, "Mai intai completeaza profilul.");
-                    return;
-                }
-                String txt = coach.generateNutritionPlan(p);
-                planDao.insert(user.id(), "NUTRITION", txt);
-                reload(user.id());
-            } catch (Exception ex) {
-                Dialogs.error(this, ex.getMessage());
-            }
-        });
+        genWorkout.addActionListener(e -> generate(user.id(), "WORKOUT", coach::generateWorkoutPlanAsync, genWorkout, genNutrition));
+        genNutrition.addActionListener(e -> generate(user.id(), "NUTRITION", coach::generateNutritionPlanAsync, genWorkout, genNutrition));
 
         delete.addActionListener(e -> {
             int row = table.getSelectedRow();
             if (row < 0) return;
             if (row >= plans.size()) return;
             if (!Dialogs.confirm(this, "Stergi planul selectat?")) return;
-            planDao.delete(plans.get(row).id(), user.id());
-            reload(user.id());
-            content.setText("");
+            long planId = plans.get(row).id();
+            tasks.run(Async.dbRun(() -> planDao.delete(planId, user.id())),
+                    v -> {
+                        reload(user.id());
+                        content.setText("");
+                    },
+                    ex -> Dialogs.error(this, ex.getMessage()));
         });
     }
 
+    private void showPlan(SearchHit hit) {
+        for (int i = 0; i < plans.size(); i++) {
+            if (plans.get(i).id() == hit.id()) {
+                table.setRowSelectionInterval(i, i);
+                table.scrollRectToVisible(table.getCellRect(i, 0, true));
+                return;
+            }
+        }
+        table.clearSelection();
+        content.setText(hit.text());
+    }
+
+    @Override
+    public void removeNotify() {
+        tasks.cancelAll();
+        search.close();
+        super.removeNotify();
+    }
+
+    private void generate(long userId, String planType,
+                          BiFunction<UserProfile, Consumer<String>, CompletableFuture<String>> generator,
+                          JButton... buttons) {
+        for (JButton b : buttons) b.setEnabled(false);
+        table.clearSelection();
+        content.setText("");
+        CompletableFuture<Void> f = Async.db(() -> profileDao.get(userId))
+                .thenCompose(p -> {
+                    if (p == null) throw new IllegalStateException("Mai intai completeaza profilul.");
+                    return tasks.track(generator.apply(p, token -> SwingUtilities.invokeLater(() -> content.append(token))));
+                })
+                .thenAcceptAsync(txt -> planDao.insert(userId, planType, txt), Async.DB);
+        tasks.run(f,
+                v -> {
+                    for (JButton b : buttons) b.setEnabled(true);
+                    reload(userId);
+                },
+                ex -> {
+                    for (JButton b : buttons) b.setEnabled(true);
+                    Dialogs.error(this, ex.getMessage());
+                });
+    }
+
     private void reload(long userId) {
-        plans = planDao.list(userId);
-        model.setRowCount(0);
-        for (Plan p : plans) model.addRow(new Object[]{p.planType(), p.createdAt()});
-        if (model.getRowCount() > 0) table.setRowSelectionInterval(0, 0);
+        show(Async.db(() -> planDao.list(userId)));
+    }
+
+    private void show(CompletableFuture<List<Plan>> list) {
+        tasks.run(list,
+                l -> {
+                    plans = l;
+                    model.setRowCount(0);
+                    for (Plan p : plans) model.addRow(new Object[]{p.planType(), p.createdAt()});
+                    if (model.getRowCount() > 0) table.setRowSelectionInterval(0, 0);
+                },
+                ex -> Dialogs.error(this, ex.getMessage()));
     }
 }
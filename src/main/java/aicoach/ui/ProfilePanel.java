@@ -3,6 +3,7 @@ package aicoach.ui;
 import aicoach.dao.ProfileDao;
 import aicoach.model.User;
 import aicoach.model.UserProfile;
+import aicoach.service.Async;
 import aicoach.util.Dialogs;
 
 import javax.swing.*;
@@ -10,6 +11,7 @@ import java.awt.*;
 
 public final class ProfilePanel extends JPanel {
     private final ProfileDao dao = new ProfileDao();
+    private final UiTasks tasks = new UiTasks();
     private final long userId;
 
     private final JTextField age = new JTextField(6);
@@ -61,14 +63,24 @@ public final class ProfilePanel extends JPanel {
         load(userId);
 
         save.addActionListener(e -> {
+            UserProfile p;
             try {
-                UserProfile p = build(userId);
-                dao.upsert(p);
-                Dialogs.info(this, "Salvat.");
-                load(userId);
+                p = build(userId);
             } catch (Exception ex) {
                 Dialogs.error(this, ex.getMessage());
+                return;
             }
+            save.setEnabled(false);
+            tasks.run(Async.dbRun(() -> dao.upsert(p)),
+                    v -> {
+                        save.setEnabled(true);
+                        Dialogs.info(this, "Salvat.");
+                        load(userId);
+                    },
+                    ex -> {
+                        save.setEnabled(true);
+                        Dialogs.error(this, ex.getMessage());
+                    });
         });
     }
 
@@ -76,8 +88,17 @@ public final class ProfilePanel extends JPanel {
         load(userId);
     }
 
+    @Override
+    public void removeNotify() {
+        tasks.cancelAll();
+        super.removeNotify();
+    }
+
     private void load(long userId) {
-        UserProfile p = dao.get(userId);
+        tasks.run(Async.db(() -> dao.get(userId)), this::show, ex -> Dialogs.error(this, ex.getMessage()));
+    }
+
+    private void show(UserProfile p) {
         if (p == null) {
             updatedAt.setText("Actualizat la: -");
             return;
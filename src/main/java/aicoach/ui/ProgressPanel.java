@@ -3,27 +3,31 @@ package aicoach.ui;
 import aicoach.dao.ProfileDao;
 import aicoach.dao.ProgressDao;
 import aicoach.model.ProgressEntry;
+import aicoach.model.ProgressStats;
 import aicoach.model.User;
+import aicoach.service.Async;
+import aicoach.service.ProgressAnalytics;
+import aicoach.service.ProgressImporter;
 import aicoach.util.Dialogs;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 public final class ProgressPanel extends JPanel {
     private final ProfileDao profileDao = new ProfileDao();
     private final ProgressDao dao = new ProgressDao();
+    private final ProgressImporter importer = new ProgressImporter();
+    private final UiTasks tasks = new UiTasks();
 
-    private final DefaultTableModel model = new DefaultTableModel(
-            new Object[]{"data", "greutate", "calorii", "minute_antrenament", "note"}, 0
-    ) {
-        @Override public boolean isCellEditable(int r, int c) { return false; }
-    };
-
-    private final JTable table = new JTable(model);
-    private List<ProgressEntry> entries = List.of();
+    private final ProgressTableModel model;
+    private final JTable table;
+    private final JLabel stats = new JLabel(" ");
 
     private final JTextField date = new JTextField(10);
     private final JTextField weight = new JTextField(8);
@@ -31,8 +35,20 @@ public final class ProgressPanel extends JPanel {
     private final JTextField minutes = new JTextField(8);
     private final JTextField notes = new JTextField(30);
 
-    public ProgressPanel(User user) {
+    /**
+     * porneste calculul statisticilor, ca sa ruleze in paralel cu construirea panoului.
+     *
+     * @param userId utilizatorul.
+     * @return statisticile (din cache-ul progressanalytics daca sunt deja calculate).
+     */
+    static CompletableFuture<ProgressStats> prefetch(long userId) {
+        return Async.db(() -> ProgressAnalytics.shared().stats(userId));
+    }
+
+    public ProgressPanel(User user, CompletableFuture<ProgressStats> initialStats) {
         setLayout(new BorderLayout());
+        model = new ProgressTableModel(dao, user.id(), tasks, ex -> Dialogs.error(this, ex.getMessage()));
+        table = new JTable(model);
 
         JPanel form = new JPanel(new FlowLayout(FlowLayout.LEFT));
         date.setText(LocalDate.now().toString());
@@ -49,17 +65,23 @@ public final class ProgressPanel extends JPanel {
 
         JButton add = new JButton("Adauga");
         JButton del = new JButton("Sterge selectia");
+        JButton imp = new JButton("Importa...");
         form.add(add);
         form.add(del);
+        form.add(imp);
 
         add(form, BorderLayout.NORTH);
         add(new JScrollPane(table), BorderLayout.CENTER);
+        stats.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+        add(stats, BorderLayout.SOUTH);
 
-        reload(user.id());
+        model.reload();
+        showStats(initialStats);
 
         add.addActionListener(e -> {
+            ProgressEntry entry;
             try {
-                ProgressEntry entry = new ProgressEntry(
+                entry = new ProgressEntry(
                         0,
                         user.id(),
                         date.getText().trim(),
@@ -68,34 +90,90 @@ public final class ProgressPanel extends JPanel {
                         parseIntOrNull(minutes.getText()),
                         notes.getText()
                 );
-                dao.insert(entry);
-                if (entry.weightKg() != null) {
-                    profileDao.updateWeight(user.id(), entry.weightKg());
-                }
-                reload(user.id());
             } catch (Exception ex) {
                 Dialogs.error(this, ex.getMessage());
+                return;
             }
+            tasks.run(Async.db(() -> {
+                        long id = dao.insert(entry);
+                        if (entry.weightKg() != null) {
+                            profileDao.updateWeight(user.id(), entry.weightKg());
+                        }
+                        ProgressEntry saved = new ProgressEntry(id, entry.userId(), entry.entryDate(), entry.weightKg(),
+                                entry.caloriesConsumed(), entry.workoutMin(), entry.notes());
+                        return Map.entry(dao.position(user.id(), saved.entryDate(), id), saved);
+                    }),
+                    r -> {
+                        model.inserted(r.getKey(), r.getValue());
+                        reloadStats(user.id());
+                    },
+                    ex -> Dialogs.error(this, ex.getMessage()));
         });
 
+        imp.addActionListener(e -> importFile(user.id()));
+
         del.addActionListener(e -> {
             int row = table.getSelectedRow();
             if (row < 0) return;
-            if (row >= entries.size()) return;
+            ProgressEntry selected = model.entryAt(row);
+            if (selected == null) return;
             if (!Dialogs.confirm(this, "Stergi intrarea selectata?")) return;
-            dao.delete(entries.get(row).id(), user.id());
-            reload(user.id());
+            long id = selected.id();
+            tasks.run(Async.dbRun(() -> dao.delete(id, user.id())),
+                    v -> {
+                        ProgressEntry current = model.entryAt(row);
+                        if (current != null && current.id() == id) model.removed(row); else model.reload();
+                        reloadStats(user.id());
+                    },
+                    ex -> Dialogs.error(this, ex.getMessage()));
         });
     }
 
-    private void reload(long userId) {
-        entries = dao.list(userId);
-        model.setRowCount(0);
-        for (ProgressEntry e : entries) {
-            model.addRow(new Object[]{
-                    e.entryDate(), e.weightKg(), e.caloriesConsumed(), e.workoutMin(), e.notes()
-            });
-        }
+    private void importFile(long userId) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV sau JSON", "csv", "json"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        tasks.run(Async.db(() -> importer.importFile(userId, file)),
+                r -> {
+                    model.reload();
+                    reloadStats(userId);
+                    StringBuilder msg = new StringBuilder("Importate: " + r.imported() + ", respinse: " + r.skipped());
+                    for (String err : r.errors()) msg.append("\n").append(err);
+                    if (r.skipped() > r.errors().size()) msg.append("\n...");
+                    Dialogs.info(this, msg.toString());
+                },
+                ex -> Dialogs.error(this, ex.getMessage()));
+    }
+
+    @Override
+    public void removeNotify() {
+        tasks.cancelAll();
+        super.removeNotify();
+    }
+
+    private void reloadStats(long userId) {
+        showStats(prefetch(userId));
+    }
+
+    private void showStats(CompletableFuture<ProgressStats> future) {
+        tasks.run(future,
+                s -> stats.setText(statsText(s)),
+                ex -> stats.setText(" "));
+    }
+
+    private static String statsText(ProgressStats s) {
+        if (s.isEmpty()) return "Nicio inregistrare de progres.";
+        return "Medie greutate 7z: " + fmt(s.avgWeight7()) + " kg | 30z: " + fmt(s.avgWeight30()) + " kg"
+                + " | fata de saptamana trecuta: " + fmt(s.weeklyDeltaKg()) + " kg"
+                + " | trend: " + fmt(s.trendKgPerWeek()) + " kg/sapt"
+                + " | calorii medii 7z: " + (s.avgCalories7() == null ? "-" : Math.round(s.avgCalories7()))
+                + " | minute 7z: " + s.workoutMin7()
+                + " | zile inregistrate 30z: " + s.loggedDays30() + "/30";
+    }
+
+    private static String fmt(Double v) {
+        return v == null ? "-" : String.format(Locale.ROOT, "%.1f", v);
     }
 
     private static Integer parseIntOrNull(String s) {
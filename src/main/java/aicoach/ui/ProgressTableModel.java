@@ -0,0 +1,199 @@
+package aicoach.ui;
+
+import aicoach.dao.ProgressDao;
+import aicoach.model.ProgressEntry;
+import aicoach.service.Async;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * @file progresstablemodel.java
+ * @brief model de tabel pentru progres care incarca randurile pe pagini, la cerere.
+ *
+ * tabelul cere doar randurile vizibile; o pagina lipsa se citeste asincron (progressdao.page) si
+ * randurile ei apar goale pana la incarcare. se pastreaza cel mult max_pages pagini (lru).
+ * insert-ul si delete-ul din panou se aplica pe un singur rand (paginile din cache sunt deplasate),
+ * fara reincarcarea intregului istoric. toate metodele se apeleaza pe edt.
+ */
+final class ProgressTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 200;
+    static final int MAX_PAGES = 16;
+
+    private static final String[] COLUMNS = {"data", "greutate", "calorii", "minute_antrenament", "note"};
+
+    private final ProgressDao dao;
+    private final long userId;
+    private final UiTasks tasks;
+    private final Consumer<Throwable> onError;
+
+    /** paginile incarcate (index pagina -> randuri), ordonate dupa ultimul acces. */
+    private final Map<Integer, List<ProgressEntry>> pages = new LinkedHashMap<>(MAX_PAGES + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<ProgressEntry>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int rowCount;
+
+    /** creste la fiecare modificare locala; paginile citite inainte de ea sunt aruncate. */
+    private long version;
+
+    /**
+     * @param dao dao-ul progresului.
+     * @param userid utilizatorul ale carui inregistrari se afiseaza.
+     * @param tasks sarcinile panoului (anulate la inchidere).
+     * @param onerror apelat pe edt daca o citire esueaza.
+     */
+    ProgressTableModel(ProgressDao dao, long userId, UiTasks tasks, Consumer<Throwable> onError) {
+        this.dao = dao;
+        this.userId = userId;
+        this.tasks = tasks;
+        this.onError = onError;
+    }
+
+    /** reciteste numarul de randuri si goleste cache-ul de pagini. */
+    void reload() {
+        long v = ++version;
+        tasks.run(Async.db(() -> dao.count(userId)),
+                n -> {
+                    if (v != version) return;
+                    pages.clear();
+                    loading.clear();
+                    rowCount = n;
+                    fireTableDataChanged();
+                },
+                onError);
+    }
+
+    /**
+     * inregistrarea de pe un rand, daca pagina ei este incarcata.
+     *
+     * @param row indexul randului.
+     * @return inregistrarea sau null.
+     */
+    ProgressEntry entryAt(int row) {
+        if (row < 0 || row >= rowCount) return null;
+        List<ProgressEntry> rows = pages.get(row / PAGE_SIZE);
+        if (rows == null) {
+            load(row / PAGE_SIZE);
+            return null;
+        }
+        int i = row % PAGE_SIZE;
+        return i < rows.size() ? rows.get(i) : null;
+    }
+
+    /**
+     * adauga un rand nou la pozitia lui din ordinea tabelului.
+     *
+     * @param row pozitia (progressdao.position).
+     * @param e inregistrarea inserata (cu id).
+     */
+    void inserted(int row, ProgressEntry e) {
+        row = Math.max(0, Math.min(row, rowCount));
+        version++;
+        int first = row / PAGE_SIZE;
+        // descrescator: fiecare pagina primeste ultimul rand (inca nemodificat) al paginii dinainte
+        for (int k : cachedFrom(first, true)) {
+            List<ProgressEntry> rows = pages.get(k);
+            if (k == first) {
+                rows.add(row % PAGE_SIZE, e);
+            } else {
+                List<ProgressEntry> prev = pages.get(k - 1);
+                if (prev == null || prev.size() < PAGE_SIZE) {
+                    pages.remove(k);
+                    continue;
+                }
+                rows.add(0, prev.get(PAGE_SIZE - 1));
+            }
+            if (rows.size() > PAGE_SIZE) rows.remove(rows.size() - 1);
+        }
+        rowCount++;
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * scoate randul unei inregistrari sterse.
+     *
+     * @param row indexul randului.
+     */
+    void removed(int row) {
+        if (row < 0 || row >= rowCount) return;
+        version++;
+        int first = row / PAGE_SIZE;
+        int count = rowCount - 1;
+        // crescator: fiecare pagina primeste primul rand (inca nemodificat) al paginii urmatoare
+        for (int k : cachedFrom(first, false)) {
+            List<ProgressEntry> rows = pages.get(k);
+            rows.remove(k == first ? row % PAGE_SIZE : 0);
+            List<ProgressEntry> next = pages.get(k + 1);
+            if (next != null && !next.isEmpty()) rows.add(next.get(0));
+            int expected = Math.min(PAGE_SIZE, count - k * PAGE_SIZE);
+            if (rows.size() != expected || expected <= 0) pages.remove(k);
+        }
+        rowCount = count;
+        fireTableRowsDeleted(row, row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        ProgressEntry e = entryAt(row);
+        if (e == null) return null;
+        return switch (column) {
+            case 0 -> e.entryDate();
+            case 1 -> e.weightKg();
+            case 2 -> e.caloriesConsumed();
+            case 3 -> e.workoutMin();
+            default -> e.notes();
+        };
+    }
+
+    /** citeste asincron o pagina (o singura data, chiar daca tabelul o cere pentru mai multe randuri). */
+    private void load(int page) {
+        if (!loading.add(page)) return;
+        long v = version;
+        tasks.run(Async.db(() -> dao.page(userId, page * PAGE_SIZE, PAGE_SIZE)),
+                rows -> {
+                    loading.remove(page);
+                    int from = page * PAGE_SIZE;
+                    int to = Math.min(rowCount, from + PAGE_SIZE) - 1;
+                    // randurile s-au deplasat intre timp: pagina se cere din nou la urmatoarea desenare
+                    if (v == version) pages.put(page, new ArrayList<>(rows));
+                    if (to >= from) fireTableRowsUpdated(from, to);
+                },
+                // pagina ramane marcata ca in curs, ca desenarea sa nu repete citirea esuata pana la reload
+                onError);
+    }
+
+    /** indexurile paginilor din cache de la first incolo, in ordinea ceruta. */
+    private List<Integer> cachedFrom(int first, boolean descending) {
+        List<Integer> out = new ArrayList<>();
+        for (int k : pages.keySet()) if (k >= first) out.add(k);
+        out.sort(descending ? (a, b) -> b - a : Integer::compare);
+        return out;
+    }
+}
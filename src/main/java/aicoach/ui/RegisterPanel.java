@@ -1,6 +1,5 @@
 package aicoach.ui;
 
-import aicoach.model.User;
 import aicoach.service.AuthService;
 import aicoach.util.Dialogs;
 
@@ -9,6 +8,7 @@ import java.awt.*;
 
 public final class RegisterPanel extends JPanel {
     private final AuthService auth = new AuthService();
+    private final UiTasks tasks = new UiTasks();
     private final JTextField email = new JTextField(24);
     private final JPasswordField pass = new JPasswordField(24);
     private final JPasswordField pass2 = new JPasswordField(24);
@@ -50,19 +50,24 @@ public final class RegisterPanel extends JPanel {
         add(btnBack, gc);
 
         btnCreate.addActionListener(e -> {
-            try {
-                String pw1 = new String(pass.getPassword());
-                String pw2 = new String(pass2.getPassword());
-                if (!pw1.equals(pw2)) {
-                    Dialogs.error(this, "Parolele nu coincid.");
-                    return;
-                }
-                User u = auth.register(email.getText(), pw1);
-                Dialogs.info(this, "Cont creat. Esti logat.");
-                frame.onAuthenticated(u, true);
-            } catch (Exception ex) {
-                Dialogs.error(this, ex.getMessage());
+            String pw1 = new String(pass.getPassword());
+            String pw2 = new String(pass2.getPassword());
+            if (!pw1.equals(pw2)) {
+                Dialogs.error(this, "Parolele nu coincid.");
+                return;
             }
+            String em = email.getText();
+            btnCreate.setEnabled(false);
+            tasks.run(auth.registerAsync(em, pw1),
+                    u -> {
+                        btnCreate.setEnabled(true);
+                        Dialogs.info(this, "Cont creat. Esti logat.");
+                        frame.onAuthenticated(u, true);
+                    },
+                    ex -> {
+                        btnCreate.setEnabled(true);
+                        Dialogs.error(this, ex.getMessage());
+                    });
         });
 
         btnBack.addActionListener(e -> frame.showLogin());
@@ -0,0 +1,157 @@
+package aicoach.ui;
+
+import aicoach.dao.SearchDao;
+import aicoach.model.SearchHit;
+import aicoach.service.Async;
+import aicoach.util.Dialogs;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * bara de cautare full-text: camp + buton, rezultatele apar intr-o fereastra separata (nemodala),
+ * ordonate dupa relevanta, cu termenii gasiti ingrosati si incarcate cate o pagina.
+ */
+final class SearchBar extends JPanel {
+
+    static final int PAGE_SIZE = 20;
+
+    /** o pagina de rezultate (blocant, ruleaza pe executorul de i/o). */
+    @FunctionalInterface
+    interface Search {
+        List<SearchHit> page(String query, int offset, int limit);
+    }
+
+    private final Search search;
+    private final Consumer<SearchHit> onOpen;
+    private final UiTasks tasks;
+
+    private final JTextField field = new JTextField(18);
+    private final DefaultListModel<SearchHit> results = new DefaultListModel<>();
+    private final JList<SearchHit> list = new JList<>(results);
+    private final JButton more = new JButton("Mai multe rezultate");
+    private final JLabel status = new JLabel(" ");
+    private JDialog dialog;
+
+    private String query = "";
+    private long generation;
+
+    SearchBar(UiTasks tasks, Search search, Consumer<SearchHit> onOpen) {
+        super(new FlowLayout(FlowLayout.LEFT));
+        this.tasks = tasks;
+        this.search = search;
+        this.onOpen = onOpen;
+
+        JButton go = new JButton("Cauta");
+        add(new JLabel("Cauta:"));
+        add(field);
+        add(go);
+
+        go.addActionListener(e -> start());
+        field.addActionListener(e -> start());
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index,
+                                                          boolean selected, boolean focus) {
+                super.getListCellRendererComponent(l, value, index, selected, focus);
+                SearchHit h = (SearchHit) value;
+                setText("<html><small>" + escape(h.title()) + " &middot; " + escape(h.createdAt())
+                        + "</small><br>" + highlight(h.snippet()) + "</html>");
+                setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+                return this;
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) open();
+            }
+        });
+        list.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "open");
+        list.getActionMap().put("open", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                open();
+            }
+        });
+        more.addActionListener(e -> load(results.size()));
+    }
+
+    /** porneste o cautare noua pentru textul din camp. */
+    private void start() {
+        String q = field.getText().trim();
+        if (SearchDao.ftsQuery(q) == null) return;
+        query = q;
+        generation++;
+        results.clear();
+        showDialog();
+        load(0);
+    }
+
+    /** incarca pagina care incepe la offset (cere un rezultat in plus ca sa stie daca mai exista pagini). */
+    private void load(int offset) {
+        long g = generation;
+        String q = query;
+        more.setEnabled(false);
+        status.setText("Se cauta...");
+        tasks.run(Async.db(() -> search.page(q, offset, PAGE_SIZE + 1)),
+                page -> {
+                    if (g != generation) return;
+                    for (int i = 0; i < page.size() && i < PAGE_SIZE; i++) results.addElement(page.get(i));
+                    more.setEnabled(page.size() > PAGE_SIZE);
+                    status.setText(results.isEmpty() ? "Niciun rezultat." : results.size() + " rezultate");
+                },
+                ex -> {
+                    if (g != generation) return;
+                    status.setText(" ");
+                    Dialogs.error(this, ex.getMessage());
+                });
+    }
+
+    private void open() {
+        SearchHit h = list.getSelectedValue();
+        if (h != null) onOpen.accept(h);
+    }
+
+    private void showDialog() {
+        if (dialog == null) {
+            dialog = new JDialog(SwingUtilities.getWindowAncestor(this), "Rezultate cautare", Dialog.ModalityType.MODELESS);
+            JPanel south = new JPanel(new BorderLayout());
+            south.add(status, BorderLayout.WEST);
+            south.add(more, BorderLayout.EAST);
+            JPanel root = new JPanel(new BorderLayout());
+            root.add(new JScrollPane(list), BorderLayout.CENTER);
+            root.add(south, BorderLayout.SOUTH);
+            dialog.setContentPane(root);
+            dialog.setSize(520, 420);
+            dialog.setLocationRelativeTo(this);
+        }
+        dialog.setTitle("Rezultate cautare: " + query);
+        dialog.setVisible(true);
+    }
+
+    /** inchide fereastra de rezultate (la inchiderea panoului). */
+    void close() {
+        if (dialog != null) dialog.dispose();
+    }
+
+    /** escapeaza fragmentul si transforma marcajele searchdao in text ingrosat. */
+    private static String highlight(String snippet) {
+        return escape(snippet)
+                .replace(String.valueOf(SearchDao.MARK_START), "<b>")
+                .replace(String.valueOf(SearchDao.MARK_END), "</b>")
+                .replace("\n", " ");
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,38 @@
+package aicoach.ui;
+
+import aicoach.service.Async;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+final class UiTasks {
+    private final List<CompletableFuture<?>> running = new CopyOnWriteArrayList<>();
+
+    <T> CompletableFuture<T> track(CompletableFuture<T> f) {
+        running.add(f);
+        f.whenComplete((r, ex) -> running.remove(f));
+        return f;
+    }
+
+    <T> void run(CompletableFuture<T> f, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        track(f).whenComplete((r, ex) -> SwingUtilities.invokeLater(() -> {
+            if (f.isCancelled()) return;
+            if (ex == null) {
+                onSuccess.accept(r);
+                return;
+            }
+            Throwable cause = Async.unwrap(ex);
+            if (cause instanceof CancellationException) return;
+            onError.accept(cause);
+        }));
+    }
+
+    void cancelAll() {
+        for (CompletableFuture<?> f : running) f.cancel(true);
+        running.clear();
+    }
+}
@@ -1,19 +1,31 @@
 package aicoach.util;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * @file crypto.java
  * @brief functii utilitare pentru hash-uirea textului (sha-256).
  *
- * ofera o metoda simpla care transforma un string intr-un hash sha-256 in format hex
+ * ofera metode care transforma un string, un byte[] sau un bytebuffer intr-un hash sha-256 in format hex.
+ * fiecare fir isi pastreaza propriul messagedigest si un buffer de lucru (threadlocal), deci un apel nu mai
+ * cauta providerul de securitate si nu aloca decat string-ul rezultat; hex-ul se scrie dintr-un tabel de
+ * caractere in loc de string.format.
  */
 public final class Crypto {
 
     /** constructor privat: clasa utilitara nu se instantiaza. */
     private Crypto() {}
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** textele ascii pana la aceasta lungime se copiaza in bufferul firului; peste, se codifica normal. */
+    private static final int MAX_BUFFERED = 8192;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
     /**
      * calculeaza hash-ul sha-256 pentru un text si il returneaza ca string hex (lowercase).
      *
@@ -22,14 +34,115 @@ public final class Crypto {
      * @throws runtimeexception daca algoritmul sha-256 nu este disponibil sau apare o eroare la calcul.
      */
     public static String sha256(String s) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(s.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("sha256 esuat: " + e.getMessage(), e);
+        State st = STATE.get();
+        update(st, s);
+        return st.hex(st.digest());
+    }
+
+    /**
+     * calculeaza hash-ul sha-256 pentru un sir de octeti.
+     *
+     * @param data octetii de intrare.
+     * @return hash-ul sha-256 in format hex (64 caractere).
+     */
+    public static String sha256(byte[] data) {
+        State st = STATE.get();
+        st.md.update(data);
+        return st.hex(st.digest());
+    }
+
+    /**
+     * calculeaza hash-ul sha-256 pentru octetii ramasi in buffer (pozitia ajunge la limita).
+     *
+     * @param data bufferul de intrare (heap sau direct).
+     * @return hash-ul sha-256 in format hex (64 caractere).
+     */
+    public static String sha256(ByteBuffer data) {
+        State st = STATE.get();
+        st.md.update(data);
+        return st.hex(st.digest());
+    }
+
+    /**
+     * calculeaza hash-ul sha-256 al unui text ca octeti (32), fara codificare hex.
+     *
+     * @param s textul de intrare.
+     * @return cei 32 de octeti ai hash-ului (tablou nou).
+     */
+    public static byte[] sha256Bytes(String s) {
+        State st = STATE.get();
+        update(st, s);
+        return st.md.digest();
+    }
+
+    /**
+     * codifica octetii in hex (lowercase) folosind un tabel de caractere.
+     *
+     * @param bytes octetii de codificat.
+     * @return string-ul hex (2 caractere per octet).
+     */
+    public static String hex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[j++] = HEX[v >>> 4];
+            out[j++] = HEX[v & 0x0f];
+        }
+        return new String(out);
+    }
+
+    /** trimite textul in digest; textele ascii scurte trec prin bufferul firului fara alocare. */
+    private static void update(State st, String s) {
+        int n = s.length();
+        if (n <= MAX_BUFFERED) {
+            byte[] buf = st.buf;
+            int i = 0;
+            for (; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) break;
+                buf[i] = (byte) c;
+            }
+            if (i == n) {
+                st.md.update(buf, 0, n);
+                return;
+            }
+        }
+        st.md.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** digest-ul, bufferele de lucru si iesirea hex ale unui fir. */
+    private static final class State {
+        private final MessageDigest md;
+        private final byte[] buf = new byte[MAX_BUFFERED];
+        private final byte[] out = new byte[32];
+        private final char[] hex = new char[64];
+
+        private State() {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("sha256 esuat: " + e.getMessage(), e);
+            }
+        }
+
+        /** termina hash-ul in bufferul out (digest-ul este resetat pentru urmatorul apel). */
+        private byte[] digest() {
+            try {
+                md.digest(out, 0, out.length);
+            } catch (Exception e) {
+                md.reset();
+                throw new RuntimeException("sha256 esuat: " + e.getMessage(), e);
+            }
+            return out;
+        }
+
+        private String hex(byte[] bytes) {
+            for (int i = 0, j = 0; i < bytes.length; i++) {
+                int v = bytes[i] & 0xff;
+                hex[j++] = HEX[v >>> 4];
+                hex[j++] = HEX[v & 0x0f];
+            }
+            return new String(hex);
         }
     }
 }